@@ -0,0 +1,57 @@
+package fr.jufab.benchmarks;
+
+import fr.jufab.database.dto.Address;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link fr.jufab.database.repositories.AddressRepository} reads and writes on a seeded database,
+ * without address cache.
+ *
+ * @author jufab
+ * @version 1.0
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class AddressRepositoryBenchmark {
+  public static final int IDS = 100;
+
+  @Benchmark
+  public Address getAddressById(DatabaseState database)
+      throws ExecutionException, InterruptedException {
+    return database.addressRepository.getAddressById(randomId(database)).await();
+  }
+
+  @Benchmark
+  public Map<Integer, Address> getAddressesByIds(DatabaseState database) {
+    List<Integer> ids = new ArrayList<>(IDS);
+    for (int i = 0; i < IDS; i++) {
+      ids.add(randomId(database));
+    }
+    return database.addressRepository.getAddressesByIds(ids).await();
+  }
+
+  @Benchmark
+  public Address createAddress(DatabaseState database) {
+    return database.addressRepository.createAddress(
+        new Address("street", "zipCode", "city")).await();
+  }
+
+  private static int randomId(DatabaseState database) {
+    return ThreadLocalRandom.current().nextInt(database.persons) + 1;
+  }
+}
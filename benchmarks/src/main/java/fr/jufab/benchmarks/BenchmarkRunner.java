@@ -0,0 +1,27 @@
+package fr.jufab.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH launcher always adding the GC profiler, so each result comes with its allocation rate.
+ * Arguments are the JMH command line ones, e.g.
+ * {@code java -jar benchmarks/target/benchmarks.jar PersonRepository -p persons=10000}.
+ *
+ * @author jufab
+ * @version 1.0
+ */
+public class BenchmarkRunner {
+
+  public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+    new Runner(new OptionsBuilder()
+        .parent(new CommandLineOptions(args))
+        .addProfiler(GCProfiler.class)
+        .build())
+        .run();
+  }
+}
@@ -0,0 +1,82 @@
+package fr.jufab.benchmarks;
+
+import fr.jufab.database.dto.Address;
+import fr.jufab.database.dto.Gender;
+import fr.jufab.database.dto.Person;
+import fr.jufab.database.id.IdGenerator;
+import fr.jufab.database.repositories.AddressRepository;
+import fr.jufab.database.repositories.PersonRepository;
+import io.helidon.common.reactive.Multi;
+import io.helidon.config.Config;
+import io.helidon.dbclient.DbClient;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import static io.helidon.config.ConfigSources.classpath;
+import static io.helidon.config.ConfigSources.create;
+
+/**
+ * In-memory H2 database seeded with {@link #persons} persons and their address, shared by the
+ * threads of a trial.
+ * <p>
+ * Firstnames are "firstname0" to "firstname999", so a firstname is shared by
+ * {@code persons / 1000} persons.
+ *
+ * @author jufab
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+public class DatabaseState {
+  public static final int FIRSTNAMES = 1000;
+  private static final AtomicInteger DATABASES = new AtomicInteger();
+
+  /**
+   * Persons seeded before the trial, change it with "-p persons=...".
+   */
+  @Param({"1000", "100000"})
+  public int persons;
+
+  DbClient dbClient;
+  AddressRepository addressRepository;
+  PersonRepository personRepository;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    Config config = Config.builder()
+        .sources(create(Map.of("db.connection.url",
+            "jdbc:h2:mem:benchmark" + DATABASES.incrementAndGet())),
+            classpath("db-benchmark.yaml"),
+            classpath("statements.yaml"))
+        .disableEnvironmentVariablesSource()
+        .disableSystemPropertiesSource()
+        .build();
+    dbClient = DbClient.builder(config.get("db")).build();
+    createSchema();
+    addressRepository = new AddressRepository(dbClient,
+        IdGenerator.create(dbClient, AddressRepository.SEQUENCE));
+    personRepository = new PersonRepository(dbClient, addressRepository,
+        IdGenerator.create(dbClient, PersonRepository.SEQUENCE));
+    personRepository.createPersons(Multi.range(0, persons).map(DatabaseState::person), 1000)
+        .forEach(saved -> {
+        })
+        .await();
+  }
+
+  private void createSchema() {
+    for (String statement : new String[] {"create-address", "create-sequence-address",
+        "create-person", "add-person-firstname-upper", "create-index-person-firstname",
+        "create-index-person-firstname-upper", "create-sequence-person"}) {
+      dbClient.execute(dbExecute -> dbExecute.namedDml(statement)).await();
+    }
+  }
+
+  static Person person(int i) {
+    return new Person("firstname" + (i % FIRSTNAMES), "lastname" + i, 20 + i % 60,
+        new Address("street " + i, "zipCode", "city"), i % 2 == 0 ? Gender.MAN : Gender.WOMAN);
+  }
+}
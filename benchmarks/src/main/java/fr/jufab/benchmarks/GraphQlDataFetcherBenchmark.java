@@ -0,0 +1,87 @@
+package fr.jufab.benchmarks;
+
+import fr.jufab.database.dto.Person;
+import fr.jufab.graphql.GraphQlInvocationHandler;
+import fr.jufab.graphql.datafetcher.PersonDataFetcher;
+import graphql.schema.DataFetcher;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+import graphql.schema.idl.TypeRuntimeWiring;
+import io.helidon.common.configurable.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.dataloader.DataLoaderRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The same request of {@link #QUERY} sibling persons on {@link #REQUEST_THREADS} request threads,
+ * with the data fetcher returning the future of each query and with a data fetcher waiting for
+ * it. Scores are in requests, e.g. {@code java -jar benchmarks/target/benchmarks.jar GraphQl}.
+ *
+ * @author jufab
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(GraphQlDataFetcherBenchmark.REQUEST_THREADS)
+@State(Scope.Benchmark)
+public class GraphQlDataFetcherBenchmark {
+  public static final int REQUEST_THREADS = 4;
+  public static final String QUERY = "{ a: personById(id: 1) { firstname } "
+      + "b: personById(id: 2) { firstname } "
+      + "c: personById(id: 3) { firstname } "
+      + "d: personById(id: 4) { firstname } }";
+
+  GraphQlInvocationHandler async;
+  GraphQlInvocationHandler blocking;
+
+  @Setup(Level.Trial)
+  public void setUp(DatabaseState database) {
+    async = handler(new PersonDataFetcher(database.personRepository));
+    blocking = handler(new PersonDataFetcher(database.personRepository) {
+      @Override public DataFetcher<CompletableFuture<Person>> getPersonById() {
+        DataFetcher<CompletableFuture<Person>> personById = super.getPersonById();
+        return environment -> CompletableFuture.completedFuture(personById.get(environment).get());
+      }
+    });
+  }
+
+  @Benchmark
+  public Map<String, Object> asyncDataFetchers() {
+    return async.execute(QUERY, null, Map.of());
+  }
+
+  @Benchmark
+  public Map<String, Object> blockingDataFetchers() {
+    return blocking.execute(QUERY, null, Map.of());
+  }
+
+  private static GraphQlInvocationHandler handler(PersonDataFetcher personDataFetcher) {
+    String sdl = Resource.create("person.graphqls").string(StandardCharsets.UTF_8);
+    GraphQLSchema schema = new SchemaGenerator().makeExecutableSchema(
+        new SchemaParser().parse(sdl),
+        RuntimeWiring.newRuntimeWiring()
+            .type(TypeRuntimeWiring.newTypeWiring("Query")
+                .dataFetcher("personById", personDataFetcher.getPersonById()))
+            .build());
+    return new GraphQlInvocationHandler(schema, DataLoaderRegistry::new);
+  }
+}
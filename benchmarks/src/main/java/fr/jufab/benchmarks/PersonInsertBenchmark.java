@@ -0,0 +1,51 @@
+package fr.jufab.benchmarks;
+
+import fr.jufab.database.dto.Person;
+import io.helidon.common.reactive.Multi;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The same {@link #ROWS} persons inserted by
+ * {@link fr.jufab.database.repositories.PersonRepository#createPersons(Multi, int)} and by one
+ * {@link fr.jufab.database.repositories.PersonRepository#createPerson(Person)} for each, one at a
+ * time. Scores are in inserted persons, e.g.
+ * {@code java -jar benchmarks/target/benchmarks.jar PersonInsert -p persons=1000}.
+ *
+ * @author jufab
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@OperationsPerInvocation(PersonInsertBenchmark.ROWS)
+public class PersonInsertBenchmark {
+  public static final int ROWS = 500;
+
+  @Benchmark
+  public List<Person> createPersons(DatabaseState database) {
+    return database.personRepository.createPersons(persons(), ROWS).collectList().await();
+  }
+
+  @Benchmark
+  public List<Person> createPersonByPerson(DatabaseState database) {
+    return persons()
+        .flatMap(person -> database.personRepository.createPerson(person), 1, false, 1)
+        .collectList()
+        .await();
+  }
+
+  private static Multi<Person> persons() {
+    return Multi.range(0, ROWS).map(DatabaseState::person);
+  }
+}
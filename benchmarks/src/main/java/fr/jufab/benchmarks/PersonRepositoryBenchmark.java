@@ -0,0 +1,73 @@
+package fr.jufab.benchmarks;
+
+import fr.jufab.database.dto.Person;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link fr.jufab.database.repositories.PersonRepository} reads and writes on a seeded database.
+ *
+ * @author jufab
+ * @version 1.0
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PersonRepositoryBenchmark {
+
+  @Benchmark
+  public Person getPersonById(DatabaseState database)
+      throws ExecutionException, InterruptedException {
+    return database.personRepository.getPersonById(randomId(database)).await();
+  }
+
+  @Benchmark
+  public Person getPersonByIdWithAddress(DatabaseState database) {
+    return database.personRepository.getPersonByIdWithAddress(randomId(database)).await();
+  }
+
+  @Benchmark
+  public List<Person> getPersons(DatabaseState database)
+      throws ExecutionException, InterruptedException {
+    return database.personRepository.getPersons().collectList().await();
+  }
+
+  @Benchmark
+  public List<Person> getPersonsByFirstName(DatabaseState database) {
+    return database.personRepository.getPersonsByFirstName(randomFirstname())
+        .collectList()
+        .await();
+  }
+
+  @Benchmark
+  public List<Person> getPersonsByFirstNamePrefix(DatabaseState database) {
+    return database.personRepository.getPersonsByFirstNamePrefix(randomFirstname(), false)
+        .collectList()
+        .await();
+  }
+
+  @Benchmark
+  public Person createPerson(DatabaseState database) {
+    return database.personRepository.createPerson(
+        DatabaseState.person(ThreadLocalRandom.current().nextInt(database.persons))).await();
+  }
+
+  private static int randomId(DatabaseState database) {
+    return ThreadLocalRandom.current().nextInt(database.persons) + 1;
+  }
+
+  private static String randomFirstname() {
+    return "firstname" + ThreadLocalRandom.current().nextInt(DatabaseState.FIRSTNAMES);
+  }
+}
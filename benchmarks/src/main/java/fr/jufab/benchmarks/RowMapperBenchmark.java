@@ -0,0 +1,57 @@
+package fr.jufab.benchmarks;
+
+import fr.jufab.database.dto.Address;
+import fr.jufab.database.dto.Gender;
+import fr.jufab.database.dto.Person;
+import fr.jufab.database.mapper.PersonRowMapper;
+import io.helidon.dbclient.DbRow;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mapping of the whole PERSON table by {@link PersonRowMapper}, read by position, against the
+ * mapping by column name and {@code DbColumn.as(Class)} it replaced. Run it with the GC profiler
+ * to compare the allocations per row.
+ *
+ * @author jufab
+ * @version 1.0
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RowMapperBenchmark {
+
+  @Benchmark
+  public List<Person> mapByPosition(DatabaseState database) {
+    return database.dbClient.execute(dbExecute -> dbExecute.namedQuery("select-all-person"))
+        .map(new PersonRowMapper())
+        .collectList()
+        .await();
+  }
+
+  @Benchmark
+  public List<Person> mapByName(DatabaseState database) {
+    return database.dbClient.execute(dbExecute -> dbExecute.namedQuery("select-all-person"))
+        .map(RowMapperBenchmark::mapByName)
+        .collectList()
+        .await();
+  }
+
+  private static Person mapByName(DbRow row) {
+    return new Person(row.column("ID").as(Integer.class),
+        row.column("FIRSTNAME").as(String.class),
+        row.column("LASTNAME").as(String.class),
+        row.column("AGE").as(Integer.class),
+        new Address(row.column("ADDRESS_ID").as(Integer.class)),
+        Gender.valueOf(row.column("GENDER").as(String.class)));
+  }
+}
@@ -0,0 +1,207 @@
+package fr.jufab.database.cache;
+
+import io.helidon.config.Config;
+import io.helidon.metrics.RegistryFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.Tag;
+
+/**
+ * Cache bounded in size and in time, without lock.
+ * <p>
+ * Entries expire {@code ttl} after their insertion. When the cache is full the oldest inserted
+ * entries are evicted first : each entry carries its insertion number, and the insertion order
+ * only holds the numbers of the entries in the cache. Putting a value again for a cached key keeps
+ * its place. Hits, misses and evictions are counted in the application metrics
+ * {@code cache.hits}, {@code cache.misses} and {@code cache.evictions}, tagged with the cache name.
+ *
+ * @author jufab
+ * @version 1.0
+ */
+public class BoundedCache<K, V> {
+  public static final int DEFAULT_MAX_SIZE = 10_000;
+  public static final long DEFAULT_TTL_SECONDS = 600;
+
+  private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+  // keys by insertion number of their entry
+  private final ConcurrentSkipListMap<Long, K> insertionOrder = new ConcurrentSkipListMap<>();
+  private final AtomicLong insertions = new AtomicLong();
+  private final int maxSize;
+  private final long ttlNanos;
+  final Counter hits;
+  final Counter misses;
+  final Counter evictions;
+
+  /**
+   * @param name cache name, tag of its metrics
+   * @param maxSize max entries, 0 to disable the cache
+   * @param ttl time to live of an entry
+   * @param unit unit of {@code ttl}
+   */
+  public BoundedCache(String name, int maxSize, long ttl, TimeUnit unit) {
+    this.maxSize = maxSize;
+    this.ttlNanos = unit.toNanos(ttl);
+    this.hits = counter(name, "cache.hits", "Values found in the cache");
+    this.misses = counter(name, "cache.misses", "Values absent or expired in the cache");
+    this.evictions = counter(name, "cache.evictions", "Values removed as expired or to make room");
+  }
+
+  private static Counter counter(String cacheName, String name, String description) {
+    return RegistryFactory.getInstance()
+        .getRegistry(MetricRegistry.Type.APPLICATION)
+        .counter(Metadata.builder()
+                .withName(name)
+                .withDescription(description)
+                .withType(MetricType.COUNTER)
+                .build(),
+            new Tag("cache", cacheName));
+  }
+
+  /**
+   * Cache configured by "enabled", "max-size" and "ttl-seconds".
+   *
+   * @param name cache name, tag of its metrics
+   * @param config cache config node
+   * @return cache, disabled if "enabled" is false
+   */
+  public static <K, V> BoundedCache<K, V> create(String name, Config config) {
+    boolean enabled = config.get("enabled").asBoolean().orElse(true);
+    return new BoundedCache<>(name,
+        enabled ? config.get("max-size").asInt().orElse(DEFAULT_MAX_SIZE) : 0,
+        config.get("ttl-seconds").asLong().orElse(DEFAULT_TTL_SECONDS), TimeUnit.SECONDS);
+  }
+
+  /**
+   * @return a cache keeping nothing
+   */
+  public static <K, V> BoundedCache<K, V> disabled() {
+    return new BoundedCache<>("disabled", 0, 0, TimeUnit.SECONDS);
+  }
+
+  public boolean isEnabled() {
+    return maxSize > 0;
+  }
+
+  /**
+   * @param key key
+   * @return cached value, null if absent or expired
+   */
+  public V get(K key) {
+    if (!isEnabled()) {
+      return null;
+    }
+    Entry<V> entry = entries.get(key);
+    if (entry == null) {
+      misses.inc();
+      return null;
+    }
+    if (entry.isExpired()) {
+      if (remove(key, entry)) {
+        evictions.inc();
+      }
+      misses.inc();
+      return null;
+    }
+    hits.inc();
+    return entry.value;
+  }
+
+  public void put(K key, V value) {
+    if (!isEnabled()) {
+      return;
+    }
+    long expiresAt = System.nanoTime() + ttlNanos;
+    AtomicReference<Entry<V>> expired = new AtomicReference<>();
+    Entry<V> entry = entries.compute(key, (k, previous) -> {
+      if (previous == null || previous.isExpired()) {
+        expired.set(previous);
+        return new Entry<>(value, expiresAt, insertions.incrementAndGet());
+      }
+      // keeps the place of the replaced entry
+      return new Entry<>(value, expiresAt, previous.insertion);
+    });
+    if (expired.get() != null) {
+      insertionOrder.remove(expired.get().insertion, key);
+    }
+    if (insertionOrder.putIfAbsent(entry.insertion, key) == null) {
+      Entry<V> current = entries.get(key);
+      if (current == null || current.insertion != entry.insertion) {
+        // removed before its insertion was ordered
+        insertionOrder.remove(entry.insertion, key);
+      }
+    }
+    while (entries.size() > maxSize) {
+      Map.Entry<Long, K> oldest = insertionOrder.pollFirstEntry();
+      if (oldest == null) {
+        break;
+      }
+      evict(oldest.getValue(), oldest.getKey());
+    }
+  }
+
+  public void invalidate(K key) {
+    Entry<V> entry = entries.remove(key);
+    if (entry != null) {
+      insertionOrder.remove(entry.insertion, key);
+    }
+  }
+
+  public void invalidateAll() {
+    entries.clear();
+    insertionOrder.clear();
+  }
+
+  private void evict(K key, long insertion) {
+    Entry<V> entry;
+    // until removed, unless the key was put again at another place meanwhile
+    while ((entry = entries.get(key)) != null && entry.insertion == insertion) {
+      if (entries.remove(key, entry)) {
+        evictions.inc();
+        return;
+      }
+    }
+  }
+
+  private boolean remove(K key, Entry<V> entry) {
+    if (entries.remove(key, entry)) {
+      insertionOrder.remove(entry.insertion, key);
+      return true;
+    }
+    return false;
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * @return number of keys in the insertion order, the size once the writes are done
+   */
+  int orderedSize() {
+    return insertionOrder.size();
+  }
+
+  private static final class Entry<V> {
+    final V value;
+    final long expiresAt;
+    final long insertion;
+
+    Entry(V value, long expiresAt, long insertion) {
+      this.value = value;
+      this.expiresAt = expiresAt;
+      this.insertion = insertion;
+    }
+
+    boolean isExpired() {
+      return expiresAt - System.nanoTime() < 0;
+    }
+  }
+}
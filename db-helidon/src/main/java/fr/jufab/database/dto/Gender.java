@@ -1,9 +1,34 @@
 package fr.jufab.database.dto;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * @author jufab
  * @version 1.0
  */
 public enum Gender {
-  WOMAN, MAN
+  WOMAN, MAN;
+
+  private static final Map<String, Gender> BY_NAME = new HashMap<>();
+
+  static {
+    for (Gender gender : values()) {
+      BY_NAME.put(gender.name(), gender);
+    }
+  }
+
+  /**
+   * Same as {@link #valueOf(String)} from a table built once.
+   *
+   * @param name gender name
+   * @return gender
+   */
+  public static Gender of(String name) {
+    Gender gender = BY_NAME.get(name);
+    if (gender == null) {
+      throw new IllegalArgumentException("No gender " + name);
+    }
+    return gender;
+  }
 }
@@ -0,0 +1,28 @@
+package fr.jufab.database.dto;
+
+import java.io.Serializable;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * A page of a keyset pagination.
+ *
+ * @author jufab
+ * @version 1.0
+ */
+@Data
+@EqualsAndHashCode
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class Page<T> implements Serializable {
+  List<T> items;
+  /**
+   * Id to give as "after id" to get the next page, null on the last page.
+   */
+  Integer nextCursor;
+}
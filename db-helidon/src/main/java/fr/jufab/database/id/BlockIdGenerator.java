@@ -0,0 +1,182 @@
+package fr.jufab.database.id;
+
+import io.helidon.common.reactive.Single;
+import io.helidon.dbclient.DbClient;
+import io.helidon.metrics.RegistryFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.Tag;
+
+/**
+ * Hi/lo generator : each sequence value reserves a block of ids handed out from memory.
+ * <p>
+ * Sequence value {@code hi} reserves ids {@code (hi - 1) * blockSize + 1} to
+ * {@code hi * blockSize}, so the first id stays 1. Reserved ids not used before a restart are
+ * lost. The block size of an existing sequence can be raised but must not be lowered, ids already
+ * given could be given again.
+ * <p>
+ * The ids of a batch up to the block size are one contiguous range of one block. A larger batch
+ * reserves its own blocks by one sequence query, the rest of its last block is not used.
+ *
+ * @author jufab
+ * @version 1.0
+ */
+public class BlockIdGenerator implements IdGenerator {
+  public static final int DEFAULT_BLOCK_SIZE = 50;
+  static final String REFILLS_METRIC = "id-generator.refills";
+  final Logger logger = Logger.getLogger(BlockIdGenerator.class.getName());
+
+  final DbClient dbClient;
+  final String sequenceName;
+  final int blockSize;
+  final AtomicReference<Block> block = new AtomicReference<>(Block.EMPTY);
+  final AtomicReference<CompletableFuture<Block>> refill = new AtomicReference<>();
+  final Counter refills;
+
+  public BlockIdGenerator(DbClient dbClient, String sequenceName, int blockSize) {
+    this.dbClient = dbClient;
+    this.sequenceName = sequenceName;
+    this.blockSize = blockSize;
+    this.refills = RegistryFactory.getInstance()
+        .getRegistry(MetricRegistry.Type.APPLICATION)
+        .counter(Metadata.builder()
+                .withName(REFILLS_METRIC)
+                .withDescription("Id blocks reserved from the database sequence")
+                .withType(MetricType.COUNTER)
+                .build(),
+            new Tag("sequence", sequenceName));
+  }
+
+  @Override public Single<Integer> nextId() {
+    Block current = block.get();
+    int id = current.next();
+    return id > 0 ? Single.just(id) : refill(current).flatMapSingle(ignored -> nextId());
+  }
+
+  /**
+   * Ids of a batch up to the block size are taken together from the current block when it has
+   * room, else from a new block : the rest of the current block is then not used.
+   */
+  @Override public Single<List<Integer>> nextIds(int count) {
+    if (count <= 0) {
+      return Single.just(List.of());
+    }
+    if (count > blockSize) {
+      return reserve(count);
+    }
+    Block current = block.get();
+    int first = current.take(count);
+    return first > 0
+        ? Single.just(IntStream.range(first, first + count).boxed().collect(Collectors.toList()))
+        : refill(current).flatMapSingle(ignored -> nextIds(count));
+  }
+
+  /**
+   * Reserve the blocks of a batch larger than a block by one sequence query. Its ids are one
+   * contiguous range when the sequence values read are consecutive, that is when no other
+   * generator or refill called the sequence meanwhile.
+   */
+  private Single<List<Integer>> reserve(int count) {
+    int blocks = (count + blockSize - 1) / blockSize;
+    return SequenceIdGenerator.nextVals(dbClient, sequenceName, blocks)
+        .map(his -> {
+          refills.inc(blocks);
+          List<Integer> ids = new ArrayList<>(count);
+          for (int hi : his) {
+            for (int id = (hi - 1) * blockSize + 1; id <= hi * blockSize && ids.size() < count;
+                id++) {
+              ids.add(id);
+            }
+          }
+          logger.fine(() -> sequenceName + " " + blocks + " blocks reserved for " + count + " ids");
+          return ids;
+        });
+  }
+
+  /**
+   * Reserve a new block once the current one is exhausted. Only one caller queries the sequence,
+   * the others wait for its block.
+   */
+  private Single<Block> refill(Block exhausted) {
+    CompletableFuture<Block> newBlock = new CompletableFuture<>();
+    CompletableFuture<Block> running = refill.compareAndExchange(null, newBlock);
+    if (running != null) {
+      return Single.create(running);
+    }
+    Block current = block.get();
+    if (current != exhausted) {
+      // refilled between the exhausted read and this refill
+      refill.set(null);
+      newBlock.complete(current);
+      return Single.just(current);
+    }
+    SequenceIdGenerator.nextVal(dbClient, sequenceName)
+        .map(hi -> new Block((hi - 1) * blockSize + 1, hi * blockSize))
+        .whenComplete((reserved, throwable) -> {
+          if (throwable == null) {
+            block.set(reserved);
+            refills.inc();
+            logger.fine(() -> sequenceName + " block reserved : " + reserved);
+          }
+          refill.set(null);
+          if (throwable == null) {
+            newBlock.complete(reserved);
+          } else {
+            newBlock.completeExceptionally(throwable);
+          }
+        });
+    return Single.create(newBlock);
+  }
+
+  static final class Block {
+    static final Block EMPTY = new Block(1, 0);
+    final AtomicInteger next;
+    final int last;
+
+    Block(int first, int last) {
+      this.next = new AtomicInteger(first);
+      this.last = last;
+    }
+
+    /**
+     * @return next id of the block, 0 when exhausted
+     */
+    int next() {
+      if (next.get() > last) {
+        return 0;
+      }
+      int id = next.getAndIncrement();
+      return id <= last ? id : 0;
+    }
+
+    /**
+     * @param count number of ids
+     * @return first of {@code count} contiguous ids of the block, 0 without room for them
+     */
+    int take(int count) {
+      while (true) {
+        int first = next.get();
+        if (first + count - 1 > last) {
+          return 0;
+        }
+        if (next.compareAndSet(first, first + count)) {
+          return first;
+        }
+      }
+    }
+
+    @Override public String toString() {
+      return "[" + next.get() + ", " + last + "]";
+    }
+  }
+}
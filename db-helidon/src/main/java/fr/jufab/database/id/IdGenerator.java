@@ -0,0 +1,66 @@
+package fr.jufab.database.id;
+
+import io.helidon.common.reactive.Multi;
+import io.helidon.common.reactive.Single;
+import io.helidon.config.Config;
+import io.helidon.dbclient.DbClient;
+import java.util.List;
+
+/**
+ * Give ids to the rows to insert.
+ *
+ * @author jufab
+ * @version 1.0
+ */
+public interface IdGenerator {
+
+  /**
+   * @return next id, unique for the sequence of this generator
+   */
+  Single<Integer> nextId();
+
+  /**
+   * Ids of a batch, one {@link #nextId()} by id unless the generator reserves them together.
+   *
+   * @param count number of ids
+   * @return next {@code count} ids, in no particular order
+   */
+  default Single<List<Integer>> nextIds(int count) {
+    return Multi.range(0, count).flatMap(i -> nextId()).collectList();
+  }
+
+  /**
+   * Generator with the default block size.
+   *
+   * @param dbClient db client
+   * @param sequenceName database sequence backing the generator
+   * @return id generator
+   */
+  static IdGenerator create(DbClient dbClient, String sequenceName) {
+    return create(dbClient, sequenceName, BlockIdGenerator.DEFAULT_BLOCK_SIZE);
+  }
+
+  /**
+   * Generator configured from the "id-generator" node of db.yaml.
+   *
+   * @param dbClient db client
+   * @param sequenceName database sequence backing the generator
+   * @param config "id-generator" config node
+   * @return id generator
+   */
+  static IdGenerator create(DbClient dbClient, String sequenceName, Config config) {
+    return create(dbClient, sequenceName,
+        config.get("block-size").asInt().orElse(BlockIdGenerator.DEFAULT_BLOCK_SIZE));
+  }
+
+  /**
+   * @param dbClient db client
+   * @param sequenceName database sequence backing the generator
+   * @param blockSize ids reserved by each sequence call, 1 to call the sequence for every id
+   * @return id generator
+   */
+  static IdGenerator create(DbClient dbClient, String sequenceName, int blockSize) {
+    return blockSize > 1 ? new BlockIdGenerator(dbClient, sequenceName, blockSize)
+        : new SequenceIdGenerator(dbClient, sequenceName);
+  }
+}
@@ -0,0 +1,48 @@
+package fr.jufab.database.id;
+
+import io.helidon.common.reactive.Single;
+import io.helidon.dbclient.DbClient;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * One sequence call for every id, one query for the ids of a batch.
+ *
+ * @author jufab
+ * @version 1.0
+ */
+public class SequenceIdGenerator implements IdGenerator {
+  final DbClient dbClient;
+  final String sequenceName;
+
+  public SequenceIdGenerator(DbClient dbClient, String sequenceName) {
+    this.dbClient = dbClient;
+    this.sequenceName = sequenceName;
+  }
+
+  @Override public Single<Integer> nextId() {
+    return nextVal(dbClient, sequenceName);
+  }
+
+  @Override public Single<List<Integer>> nextIds(int count) {
+    return nextVals(dbClient, sequenceName, count);
+  }
+
+  static Single<Integer> nextVal(DbClient dbClient, String sequenceName) {
+    String nextVal = "NEXTVAL('" + sequenceName + "')";
+    return dbClient.execute(dbExecute ->
+        dbExecute.get("SELECT " + nextVal)
+            .map(value -> value.get().column(nextVal).as(Long.class).intValue()));
+  }
+
+  /**
+   * @return {@code count} values of the sequence read by one query, in ascending order
+   */
+  static Single<List<Integer>> nextVals(DbClient dbClient, String sequenceName, int count) {
+    return dbClient.execute(dbExecute ->
+        dbExecute.query("SELECT NEXTVAL('" + sequenceName + "') FROM SYSTEM_RANGE(1, ?)", count)
+            .map(row -> row.column(1).as(Long.class).intValue())
+            .collectList()
+            .map(values -> values.stream().sorted().collect(Collectors.toList())));
+  }
+}
@@ -0,0 +1,24 @@
+package fr.jufab.database.mapper;
+
+import fr.jufab.database.dto.Address;
+import io.helidon.dbclient.DbRow;
+
+/**
+ * Address from ID, STREET, ZIPCODE and CITY columns.
+ *
+ * @author jufab
+ * @version 1.0
+ */
+public class AddressRowMapper extends RowMapper<Address> {
+
+  public AddressRowMapper() {
+    super("ID", "STREET", "ZIPCODE", "CITY");
+  }
+
+  @Override protected Address map(DbRow row, int[] positions) {
+    return new Address(intValue(row, positions[0]),
+        stringValue(row, positions[1]),
+        stringValue(row, positions[2]),
+        stringValue(row, positions[3]));
+  }
+}
@@ -0,0 +1,55 @@
+package fr.jufab.database.mapper;
+
+import fr.jufab.database.dto.Address;
+import fr.jufab.database.dto.Gender;
+import fr.jufab.database.dto.Person;
+import io.helidon.dbclient.DbRow;
+import java.util.List;
+
+/**
+ * Person and its address from the columns of a projection : ID and ADDRESS_ID, then any of
+ * FIRSTNAME, LASTNAME, AGE, GENDER, STREET, ZIPCODE and CITY. Properties without column are left
+ * null, or 0 for the age.
+ *
+ * @author jufab
+ * @version 1.0
+ */
+public class PersonProjectionRowMapper extends RowMapper<Person> {
+  private final int firstname;
+  private final int lastname;
+  private final int age;
+  private final int gender;
+  private final int street;
+  private final int zipCode;
+  private final int city;
+
+  /**
+   * @param columns names of the columns read, starting with ID and ADDRESS_ID
+   */
+  public PersonProjectionRowMapper(List<String> columns) {
+    super(columns.toArray(new String[0]));
+    this.firstname = columns.indexOf("FIRSTNAME");
+    this.lastname = columns.indexOf("LASTNAME");
+    this.age = columns.indexOf("AGE");
+    this.gender = columns.indexOf("GENDER");
+    this.street = columns.indexOf("STREET");
+    this.zipCode = columns.indexOf("ZIPCODE");
+    this.city = columns.indexOf("CITY");
+  }
+
+  @Override protected Person map(DbRow row, int[] positions) {
+    return new Person(intValue(row, positions[0]),
+        stringValue(row, positions, firstname),
+        stringValue(row, positions, lastname),
+        age < 0 ? 0 : intValue(row, positions[age]),
+        new Address(intValue(row, positions[1]),
+            stringValue(row, positions, street),
+            stringValue(row, positions, zipCode),
+            stringValue(row, positions, city)),
+        gender < 0 ? null : Gender.of(stringValue(row, positions[gender])));
+  }
+
+  private static String stringValue(DbRow row, int[] positions, int column) {
+    return column < 0 ? null : stringValue(row, positions[column]);
+  }
+}
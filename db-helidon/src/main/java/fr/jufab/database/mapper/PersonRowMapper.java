@@ -0,0 +1,29 @@
+package fr.jufab.database.mapper;
+
+import fr.jufab.database.dto.Address;
+import fr.jufab.database.dto.Gender;
+import fr.jufab.database.dto.Person;
+import io.helidon.dbclient.DbRow;
+
+/**
+ * Person from ID, FIRSTNAME, LASTNAME, AGE, GENDER and ADDRESS_ID columns. The address only holds
+ * its id.
+ *
+ * @author jufab
+ * @version 1.0
+ */
+public class PersonRowMapper extends RowMapper<Person> {
+
+  public PersonRowMapper() {
+    super("ID", "FIRSTNAME", "LASTNAME", "AGE", "GENDER", "ADDRESS_ID");
+  }
+
+  @Override protected Person map(DbRow row, int[] positions) {
+    return new Person(intValue(row, positions[0]),
+        stringValue(row, positions[1]),
+        stringValue(row, positions[2]),
+        intValue(row, positions[3]),
+        new Address(intValue(row, positions[5])),
+        Gender.of(stringValue(row, positions[4])));
+  }
+}
@@ -0,0 +1,33 @@
+package fr.jufab.database.mapper;
+
+import fr.jufab.database.dto.Address;
+import fr.jufab.database.dto.Gender;
+import fr.jufab.database.dto.Person;
+import io.helidon.dbclient.DbRow;
+
+/**
+ * Person and its address from ID, FIRSTNAME, LASTNAME, AGE, GENDER, ADDRESS_ID, STREET, ZIPCODE
+ * and CITY columns.
+ *
+ * @author jufab
+ * @version 1.0
+ */
+public class PersonWithAddressRowMapper extends RowMapper<Person> {
+
+  public PersonWithAddressRowMapper() {
+    super("ID", "FIRSTNAME", "LASTNAME", "AGE", "GENDER", "ADDRESS_ID", "STREET", "ZIPCODE",
+        "CITY");
+  }
+
+  @Override protected Person map(DbRow row, int[] positions) {
+    return new Person(intValue(row, positions[0]),
+        stringValue(row, positions[1]),
+        stringValue(row, positions[2]),
+        intValue(row, positions[3]),
+        new Address(intValue(row, positions[5]),
+            stringValue(row, positions[6]),
+            stringValue(row, positions[7]),
+            stringValue(row, positions[8])),
+        Gender.of(stringValue(row, positions[4])));
+  }
+}
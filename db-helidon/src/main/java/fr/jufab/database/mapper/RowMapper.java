@@ -0,0 +1,68 @@
+package fr.jufab.database.mapper;
+
+import io.helidon.dbclient.DbRow;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Map the rows of one result set.
+ * <p>
+ * Positions of the columns are resolved by name on the first row, then the next rows are read by
+ * position. A mapper is created for each query and is not shared between result sets.
+ *
+ * @author jufab
+ * @version 1.0
+ */
+public abstract class RowMapper<T> implements Function<DbRow, T> {
+  private final String[] columns;
+  private int[] positions;
+
+  /**
+   * @param columns names of the columns read by {@link #map(DbRow, int[])}, in this order
+   */
+  protected RowMapper(String... columns) {
+    this.columns = columns;
+  }
+
+  @Override public T apply(DbRow row) {
+    int[] resolved = positions;
+    if (resolved == null) {
+      resolved = resolve(row);
+      positions = resolved;
+    }
+    return map(row, resolved);
+  }
+
+  /**
+   * @param row row to map
+   * @param positions positions of the columns given to the constructor, in the same order
+   * @return mapped row
+   */
+  protected abstract T map(DbRow row, int[] positions);
+
+  protected static int intValue(DbRow row, int position) {
+    return ((Number) row.column(position).value()).intValue();
+  }
+
+  protected static String stringValue(DbRow row, int position) {
+    return (String) row.column(position).value();
+  }
+
+  private int[] resolve(DbRow row) {
+    Map<String, Integer> positionsByName = new HashMap<>();
+    // positions start at 1, DbRow.forEach does not keep the order of the columns
+    for (int position = 1; row.column(position) != null; position++) {
+      positionsByName.put(row.column(position).name().toUpperCase(), position);
+    }
+    int[] resolved = new int[columns.length];
+    for (int i = 0; i < columns.length; i++) {
+      Integer position = positionsByName.get(columns[i]);
+      if (position == null) {
+        throw new IllegalStateException("Column " + columns[i] + " not found in " + row);
+      }
+      resolved[i] = position;
+    }
+    return resolved;
+  }
+}
@@ -1,10 +1,19 @@
 package fr.jufab.database.repositories;
 
+import fr.jufab.database.cache.BoundedCache;
 import fr.jufab.database.dto.Address;
+import fr.jufab.database.id.IdGenerator;
+import fr.jufab.database.mapper.AddressRowMapper;
+import io.helidon.common.reactive.Multi;
 import io.helidon.common.reactive.Single;
 import io.helidon.dbclient.DbClient;
-import io.helidon.dbclient.DbRow;
-import java.util.concurrent.ExecutionException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 
 /**
@@ -12,40 +21,200 @@ import java.util.logging.Logger;
  * @version 1.0
  */
 public class AddressRepository {
+  /**
+   * Max number of ids bound to a single "select-addresses-by-ids" execution.
+   */
+  public static final int IDS_CHUNK_SIZE = 500;
+  /**
+   * Default number of rows inserted by a single "insert-addresses" execution.
+   */
+  public static final int DEFAULT_BATCH_SIZE = 500;
+  public static final String SEQUENCE = "SEQ_ID_ADDRESS";
   final Logger logger = Logger.getLogger(AddressRepository.class.getName());
+  public static final String CACHE_NAME = "address";
   DbClient dbClient;
+  IdGenerator idGenerator;
+  BoundedCache<Integer, Address> cache;
 
   public AddressRepository(DbClient dbClient) {
+    this(dbClient, IdGenerator.create(dbClient, SEQUENCE));
+  }
+
+  public AddressRepository(DbClient dbClient, IdGenerator idGenerator) {
+    this(dbClient, idGenerator, BoundedCache.disabled());
+  }
+
+  /**
+   * @param dbClient db client
+   * @param idGenerator ids of the inserted addresses
+   * @param cache read-through cache of addresses by id, filled by reads and creations
+   */
+  public AddressRepository(DbClient dbClient, IdGenerator idGenerator,
+      BoundedCache<Integer, Address> cache) {
     this.dbClient = dbClient;
+    this.idGenerator = idGenerator;
+    this.cache = cache;
   }
 
-  public Single<Address> getAddressById(int id) throws ExecutionException, InterruptedException {
+  public Single<Address> getAddressById(int id) {
+    Address cached = cache.get(id);
+    if (cached != null) {
+      return Single.just(cached);
+    }
     return dbClient.execute(
         dbExecute ->
             dbExecute.namedGet("select-address", id)
-                .map(row -> {
-                  DbRow resultSet = row.get();
-                  return new Address(resultSet.column("ID").as(Integer.class),
-                      resultSet.column("STREET").as(String.class),
-                      resultSet.column("ZIPCODE").as(String.class),
-                      resultSet.column("CITY").as(String.class)
-                  );
-                }));
-  }
-
-  public Single<Address> createAddress(Address address) throws ExecutionException, InterruptedException {
-    address.setId(getSequence());
-    dbClient.execute(dbExecute ->
-        dbExecute.namedInsert("insert-address",
-            address.getId(), address.getStreet(), address.getZipCode(), address.getCity()))
-        .thenAccept(count -> logger.info("insert address count : " + count));
-    return Single.just(address);
-  }
-
-  int getSequence() throws ExecutionException, InterruptedException {
-    return dbClient.execute(dbExecute ->
-        dbExecute.get("SELECT NEXTVAL('SEQ_ID_ADDRESS')")
-            .map(value -> value.get().column("NEXTVAL('SEQ_ID_ADDRESS')").as(Long.class)))
-        .get().intValue();
+                .map(row -> new AddressRowMapper().apply(row.get())))
+        .peek(this::cache);
+  }
+
+  /**
+   * Get all addresses matching the given ids with one set-based query per chunk of
+   * {@link #IDS_CHUNK_SIZE} ids. Duplicated ids are queried once, unknown ids are absent from the
+   * result. Cached addresses are not queried.
+   *
+   * @param ids addresses ids
+   * @return addresses by id
+   */
+  public Single<Map<Integer, Address>> getAddressesByIds(Collection<Integer> ids) {
+    Map<Integer, Address> cached = new HashMap<>();
+    List<Integer> missing = new ArrayList<>();
+    for (Integer id : new LinkedHashSet<>(ids)) {
+      Address address = cache.get(id);
+      if (address != null) {
+        cached.put(id, address);
+      } else {
+        missing.add(id);
+      }
+    }
+    if (missing.isEmpty()) {
+      return Single.just(cached.isEmpty() ? Collections.emptyMap() : cached);
+    }
+    return Multi.create(chunk(missing))
+        // a mapper for each chunk, the queries of the chunks run concurrently
+        .flatMap(chunk -> dbClient.execute(dbExecute ->
+            dbExecute.namedQuery("select-addresses-by-ids", (Object) chunk))
+            .map(new AddressRowMapper()))
+        .peek(this::cache)
+        .collect(() -> cached,
+            (addresses, address) -> addresses.put(address.getId(), address));
+  }
+
+  /**
+   * @return distinct ids by arrays of at most {@link #IDS_CHUNK_SIZE} ids
+   */
+  static List<Integer[]> chunk(Collection<Integer> ids) {
+    List<Integer> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+    List<Integer[]> chunks = new ArrayList<>();
+    for (int from = 0; from < distinctIds.size(); from += IDS_CHUNK_SIZE) {
+      chunks.add(distinctIds.subList(from, Math.min(from + IDS_CHUNK_SIZE, distinctIds.size()))
+          .toArray(new Integer[0]));
+    }
+    return chunks;
+  }
+
+  /**
+   * Insert an address, completed once the row is inserted.
+   *
+   * @param address address to save
+   * @return the address with its id
+   */
+  public Single<Address> createAddress(Address address) {
+    return nextId()
+        .flatMapSingle(id -> {
+          address.setId(id);
+          return dbClient.execute(dbExecute ->
+              dbExecute.namedInsert("insert-address",
+                  address.getId(), address.getStreet(), address.getZipCode(), address.getCity()));
+        })
+        .map(count -> {
+          logger.info("insert address count : " + count);
+          cache(address);
+          return address;
+        });
+  }
+
+  /**
+   * Insert addresses by batches of {@link #DEFAULT_BATCH_SIZE}.
+   *
+   * @param addresses addresses to save
+   * @return saved addresses with their id
+   * @see #createAddresses(Multi, int)
+   */
+  public Multi<Address> createAddresses(Multi<Address> addresses) {
+    return createAddresses(addresses, DEFAULT_BATCH_SIZE);
+  }
+
+  /**
+   * Insert addresses by batches : ids of a batch are reserved by one {@link IdGenerator#nextIds}
+   * call, at most one sequence query, and its rows are inserted by one "insert-addresses"
+   * execution. One batch is inserted at a time and the next one is
+   * requested only when the saved addresses are consumed.
+   *
+   * @param addresses addresses to save
+   * @param batchSize max rows inserted by one execution
+   * @return saved addresses with their id, in the order received
+   */
+  public Multi<Address> createAddresses(Multi<Address> addresses, int batchSize) {
+    return Multi.create(new BatchPublisher<>(addresses, batchSize))
+        .flatMap(batch -> withIds(batch)
+            .flatMapSingle(saving -> dbClient.execute(dbExecute ->
+                dbExecute.namedInsert("insert-addresses", batchParams(saving))))
+            .map(count -> {
+              logger.info("insert addresses count : " + count);
+              batch.forEach(this::cache);
+              return batch;
+            }), 1, false, 1)
+        .flatMapIterable(batch -> batch);
+  }
+
+  Single<List<Address>> withIds(List<Address> addresses) {
+    return idGenerator.nextIds(addresses.size())
+        .map(ids -> {
+          for (int i = 0; i < addresses.size(); i++) {
+            addresses.get(i).setId(ids.get(i));
+          }
+          return addresses;
+        });
+  }
+
+  /**
+   * @return one array by column of "insert-addresses"
+   */
+  static Object[] batchParams(List<Address> addresses) {
+    int size = addresses.size();
+    Integer[] ids = new Integer[size];
+    String[] streets = new String[size];
+    String[] zipCodes = new String[size];
+    String[] cities = new String[size];
+    for (int i = 0; i < size; i++) {
+      Address address = addresses.get(i);
+      ids[i] = address.getId();
+      streets[i] = address.getStreet();
+      zipCodes[i] = address.getZipCode();
+      cities[i] = address.getCity();
+    }
+    return new Object[] {ids, streets, zipCodes, cities};
+  }
+
+  Single<Integer> nextId() {
+    return idGenerator.nextId();
+  }
+
+  /**
+   * Remove an address from the cache, to call when its row is changed outside this repository.
+   *
+   * @param id address id
+   */
+  public void invalidate(int id) {
+    cache.invalidate(id);
+  }
+
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  void cache(Address address) {
+    cache.put(address.getId(), address);
   }
 }
@@ -0,0 +1,97 @@
+package fr.jufab.database.repositories;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+/**
+ * Group the items of a publisher in lists of {@code batchSize} items, the last one can be smaller.
+ * <p>
+ * A request of n batches is a request of n * batchSize items upstream, so the backpressure of the
+ * subscriber drives the upstream.
+ *
+ * @author jufab
+ * @version 1.0
+ */
+class BatchPublisher<T> implements Flow.Publisher<List<T>> {
+  private final Flow.Publisher<T> upstream;
+  private final int batchSize;
+
+  BatchPublisher(Flow.Publisher<T> upstream, int batchSize) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("batchSize must be positive : " + batchSize);
+    }
+    this.upstream = upstream;
+    this.batchSize = batchSize;
+  }
+
+  @Override public void subscribe(Flow.Subscriber<? super List<T>> subscriber) {
+    upstream.subscribe(new BatchSubscriber<>(subscriber, batchSize));
+  }
+
+  private static final class BatchSubscriber<T> implements Flow.Subscriber<T>, Flow.Subscription {
+    private final Flow.Subscriber<? super List<T>> downstream;
+    private final int batchSize;
+    private Flow.Subscription subscription;
+    private List<T> batch;
+    private boolean done;
+
+    BatchSubscriber(Flow.Subscriber<? super List<T>> downstream, int batchSize) {
+      this.downstream = downstream;
+      this.batchSize = batchSize;
+      this.batch = new ArrayList<>(batchSize);
+    }
+
+    @Override public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+      downstream.onSubscribe(this);
+    }
+
+    @Override public void onNext(T item) {
+      if (done) {
+        return;
+      }
+      batch.add(item);
+      if (batch.size() == batchSize) {
+        List<T> full = batch;
+        batch = new ArrayList<>(batchSize);
+        downstream.onNext(full);
+      }
+    }
+
+    @Override public void onError(Throwable throwable) {
+      if (done) {
+        return;
+      }
+      done = true;
+      batch = null;
+      downstream.onError(throwable);
+    }
+
+    @Override public void onComplete() {
+      if (done) {
+        return;
+      }
+      done = true;
+      List<T> last = batch;
+      batch = null;
+      if (!last.isEmpty()) {
+        downstream.onNext(last);
+      }
+      downstream.onComplete();
+    }
+
+    @Override public void request(long n) {
+      if (n <= 0) {
+        subscription.cancel();
+        onError(new IllegalArgumentException("Rule 3.9 : non-positive request " + n));
+        return;
+      }
+      subscription.request(n >= Long.MAX_VALUE / batchSize ? Long.MAX_VALUE : n * batchSize);
+    }
+
+    @Override public void cancel() {
+      subscription.cancel();
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package fr.jufab.database.repositories;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Columns of PERSON, and of ADDRESS joined in the same query, read for the properties wanted of a
+ * person and of its address.
+ * <p>
+ * ID and ADDRESS_ID are always read. ADDRESS is joined only when at least one of its properties
+ * other than the id is wanted. Properties without column are ignored. The SELECT is built from
+ * the known columns only, never from the given names.
+ *
+ * @author jufab
+ * @version 1.0
+ */
+public final class PersonProjection {
+  // the column of a property is its upper-cased name
+  private static final List<String> PERSON_PROPERTIES =
+      List.of("firstname", "lastname", "age", "gender");
+  private static final List<String> ADDRESS_PROPERTIES = List.of("street", "zipCode", "city");
+  private static final String JOIN_ADDRESS = " JOIN ADDRESS ON ADDRESS.ID=PERSON.ADDRESS_ID";
+
+  /**
+   * Every column of PERSON and ADDRESS.
+   */
+  public static final PersonProjection ALL =
+      of(PERSON_PROPERTIES, ADDRESS_PROPERTIES);
+
+  private final List<String> columns;
+  private final boolean withAddress;
+  private final String select;
+
+  private PersonProjection(List<String> columns, boolean withAddress) {
+    this.columns = columns;
+    this.withAddress = withAddress;
+    this.select = "SELECT " + String.join(",", columns) + " FROM PERSON"
+        + (withAddress ? JOIN_ADDRESS : "");
+  }
+
+  /**
+   * @param personProperties properties wanted of the person
+   * @param addressProperties properties wanted of its address, empty to only read its id
+   * @return projection reading the columns of these properties
+   */
+  public static PersonProjection of(Collection<String> personProperties,
+      Collection<String> addressProperties) {
+    List<String> columns = new ArrayList<>(List.of("PERSON.ID", "PERSON.ADDRESS_ID"));
+    // known properties in a fixed order, the same properties give the same statement
+    PERSON_PROPERTIES.stream()
+        .filter(personProperties::contains)
+        .forEach(property -> columns.add("PERSON." + property.toUpperCase(Locale.ROOT)));
+    boolean withAddress = false;
+    for (String property : ADDRESS_PROPERTIES) {
+      if (addressProperties.contains(property)) {
+        columns.add("ADDRESS." + property.toUpperCase(Locale.ROOT));
+        withAddress = true;
+      }
+    }
+    return new PersonProjection(columns, withAddress);
+  }
+
+  /**
+   * @return true if ADDRESS is joined
+   */
+  public boolean isWithAddress() {
+    return withAddress;
+  }
+
+  /**
+   * @return names of the columns read, without their table
+   */
+  public List<String> columnNames() {
+    List<String> names = new ArrayList<>(columns.size());
+    columns.forEach(column -> names.add(column.substring(column.indexOf('.') + 1)));
+    return names;
+  }
+
+  /**
+   * @return SELECT of the columns FROM PERSON, joined with ADDRESS if needed, without condition
+   */
+  public String select() {
+    return select;
+  }
+
+  @Override public boolean equals(Object o) {
+    return o instanceof PersonProjection && select.equals(((PersonProjection) o).select);
+  }
+
+  @Override public int hashCode() {
+    return select.hashCode();
+  }
+
+  @Override public String toString() {
+    return select;
+  }
+}
@@ -1,14 +1,24 @@
 package fr.jufab.database.repositories;
 
 import fr.jufab.database.dto.Address;
-import fr.jufab.database.dto.Gender;
+import fr.jufab.database.dto.Page;
 import fr.jufab.database.dto.Person;
+import fr.jufab.database.id.IdGenerator;
+import fr.jufab.database.mapper.PersonProjectionRowMapper;
+import fr.jufab.database.mapper.PersonRowMapper;
+import fr.jufab.database.mapper.PersonWithAddressRowMapper;
 import io.helidon.common.reactive.Multi;
 import io.helidon.common.reactive.Single;
 import io.helidon.dbclient.DbClient;
-import io.helidon.dbclient.DbRow;
-import java.util.concurrent.ExecutionException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 /**
  * @author jufab
@@ -16,65 +26,336 @@ import java.util.logging.Logger;
  */
 public class PersonRepository {
   final Logger logger = Logger.getLogger(AddressRepository.class.getName());
+  public static final String SEQUENCE = "SEQ_ID_PERSON";
+  /**
+   * Default number of persons inserted by a single "insert-persons" execution.
+   */
+  public static final int DEFAULT_BATCH_SIZE = 500;
   DbClient dbClient;
+  AddressRepository addressRepository;
+  IdGenerator idGenerator;
 
   public PersonRepository(DbClient dbClient) {
+    this(dbClient, new AddressRepository(dbClient), IdGenerator.create(dbClient, SEQUENCE));
+  }
+
+  public PersonRepository(DbClient dbClient, AddressRepository addressRepository,
+      IdGenerator idGenerator) {
     this.dbClient = dbClient;
+    this.addressRepository = addressRepository;
+    this.idGenerator = idGenerator;
   }
 
-  public Multi<Person> getPersons() throws ExecutionException, InterruptedException {
+  public Multi<Person> getPersons() {
     return dbClient.execute(dbExecute -> dbExecute.namedQuery("select-all-person"))
-        .map(result -> new Person(result.column("ID").as(Integer.class),
-            result.column("FIRSTNAME").as(String.class),
-            result.column("LASTNAME").as(String.class),
-            result.column("AGE").as(Integer.class),
-            new Address(result.column("ADDRESS_ID").as(Integer.class)),
-            Gender.valueOf(result.column("GENDER").as(String.class))));
+        .map(new PersonRowMapper());
+  }
+
+  /**
+   * Keyset pagination of the persons ordered by id : only one page is read whatever the size of
+   * the table.
+   *
+   * @param afterId id of the last person of the previous page, 0 for the first page
+   * @param limit max persons in the page
+   * @return persons with an id greater than {@code afterId}
+   */
+  public Single<Page<Person>> getPersonsPage(int afterId, int limit) {
+    checkLimit(limit);
+    return toPage(dbClient.execute(
+        dbExecute -> dbExecute.namedQuery("select-person-page", afterId, limit + 1))
+        .map(new PersonRowMapper()), limit);
+  }
+
+  /**
+   * Same as {@link #getPersonsPage(int, int)} but with the address of each person loaded in the
+   * same query.
+   *
+   * @param afterId id of the last person of the previous page, 0 for the first page
+   * @param limit max persons in the page
+   * @return persons with their address and an id greater than {@code afterId}
+   */
+  public Single<Page<Person>> getPersonsWithAddressPage(int afterId, int limit) {
+    checkLimit(limit);
+    return toPage(dbClient.execute(
+        dbExecute -> dbExecute.namedQuery("select-person-with-address-page", afterId, limit + 1))
+        .map(new PersonWithAddressRowMapper()), limit);
   }
 
-  public Single<Person> getPersonById(int id) throws ExecutionException, InterruptedException {
+  private static void checkLimit(int limit) {
+    if (limit < 1) {
+      throw new IllegalArgumentException("limit must be positive : " + limit);
+    }
+  }
+
+  /**
+   * One more row than the limit is read to know if there is a next page.
+   */
+  private static Single<Page<Person>> toPage(Multi<Person> persons, int limit) {
+    return persons.collectList()
+        .map(list -> list.size() > limit
+            ? new Page<>(new ArrayList<>(list.subList(0, limit)), list.get(limit - 1).getId())
+            : new Page<>(list, null));
+  }
+
+  public Single<Person> getPersonById(int id) {
     return dbClient.execute(dbExecute -> dbExecute.namedGet("select-person", id)
-        .map(value -> {
-          DbRow resultSet = value.get();
-          return new Person(resultSet.column("ID").as(Integer.class),
-              resultSet.column("FIRSTNAME").as(String.class),
-              resultSet.column("LASTNAME").as(String.class),
-              resultSet.column("AGE").as(Integer.class),
-              new Address(resultSet.column("ADDRESS_ID").as(Integer.class)),
-              Gender.valueOf(resultSet.column("GENDER").as(String.class))
-          );
-        }));
+        .map(value -> new PersonRowMapper().apply(value.get())));
   }
 
   public Multi<Person> getPersonsByFirstName(String firstName) {
     return dbClient.execute(
         dbExecute -> dbExecute.namedQuery("select-all-person-firstname", firstName))
-        .map(result -> new Person(result.column("ID").as(Integer.class),
-            result.column("FIRSTNAME").as(String.class),
-            result.column("LASTNAME").as(String.class),
-            result.column("AGE").as(Integer.class),
-            new Address(result.column("ADDRESS_ID").as(Integer.class)),
-            Gender.valueOf(result.column("GENDER").as(String.class))));
-  }
-
-  public Single<Person> createPerson(Person person)
-      throws ExecutionException, InterruptedException {
-    AddressRepository addressRepository = new AddressRepository(this.dbClient);
-    Address address = addressRepository.createAddress(person.getAddress()).get();
-    person.setAddress(address);
-    person.setId(getSequence());
-    dbClient.execute(dbExecute ->
-        dbExecute.namedInsert("insert-person",
-            person.getId(), person.getFirstname(), person.getLastname(), person.getAge(),
-            person.getGender().name(), person.getAddress().getId()))
-        .thenAccept(count -> logger.info("insert person OK"));
-    return Single.just(person);
-  }
-
-  int getSequence() throws ExecutionException, InterruptedException {
+        .map(new PersonRowMapper());
+  }
+
+  /**
+   * Persons whose firstname starts with {@code prefix}. The prefix is matched literally, "%" and
+   * "_" are not wildcards, so the search is a range scan of the firstname index.
+   *
+   * @param prefix start of the firstname
+   * @param ignoreCase true to search the upper-cased firstname column and its index
+   * @return persons whose firstname starts with {@code prefix}
+   */
+  public Multi<Person> getPersonsByFirstNamePrefix(String prefix, boolean ignoreCase) {
+    String statement = ignoreCase ? "select-person-firstname-upper-prefix"
+        : "select-person-firstname-prefix";
+    return dbClient.execute(
+        dbExecute -> dbExecute.namedQuery(statement, likePrefix(prefix, ignoreCase)))
+        .map(new PersonRowMapper());
+  }
+
+  /**
+   * Same as {@link #getPersonsByFirstNamePrefix(String, boolean)} but with the address of each
+   * person loaded in the same query.
+   *
+   * @param prefix start of the firstname
+   * @param ignoreCase true to search the upper-cased firstname column and its index
+   * @return persons with their address whose firstname starts with {@code prefix}
+   */
+  public Multi<Person> getPersonsByFirstNamePrefixWithAddress(String prefix, boolean ignoreCase) {
+    String statement = ignoreCase ? "select-person-firstname-upper-prefix-with-address"
+        : "select-person-firstname-prefix-with-address";
+    return dbClient.execute(
+        dbExecute -> dbExecute.namedQuery(statement, likePrefix(prefix, ignoreCase)))
+        .map(new PersonWithAddressRowMapper());
+  }
+
+  /**
+   * @return LIKE pattern matching the values starting with {@code prefix}, wildcards of the
+   * prefix escaped by a backslash
+   */
+  static String likePrefix(String prefix, boolean upperCase) {
+    String normalized = upperCase ? prefix.toUpperCase(Locale.ROOT) : prefix;
+    StringBuilder pattern = new StringBuilder(normalized.length() + 2);
+    for (int i = 0; i < normalized.length(); i++) {
+      char c = normalized.charAt(i);
+      if (c == '%' || c == '_' || c == '\\') {
+        pattern.append('\\');
+      }
+      pattern.append(c);
+    }
+    return pattern.append('%').toString();
+  }
+
+  /**
+   * Same as {@link #getPersons()} but with the address of each person loaded in the same query.
+   *
+   * @return persons with their address
+   */
+  public Multi<Person> getPersonsWithAddress() {
+    return dbClient.execute(dbExecute -> dbExecute.namedQuery("select-all-person-with-address"))
+        .map(new PersonWithAddressRowMapper());
+  }
+
+  /**
+   * Same as {@link #getPersonById(int)} but with the address loaded in the same query.
+   *
+   * @param id person id
+   * @return person with its address
+   */
+  public Single<Person> getPersonByIdWithAddress(int id) {
+    return dbClient.execute(dbExecute -> dbExecute.namedGet("select-person-with-address", id)
+        .map(value -> new PersonWithAddressRowMapper().apply(value.get())));
+  }
+
+  /**
+   * Get the persons with their address matching the given ids with one set-based query per chunk
+   * of {@link AddressRepository#IDS_CHUNK_SIZE} ids. Duplicated ids are queried once, unknown ids
+   * are absent from the result.
+   *
+   * @param ids persons ids
+   * @return persons with their address by id
+   */
+  public Single<Map<Integer, Person>> getPersonsByIdsWithAddress(Collection<Integer> ids) {
+    if (ids.isEmpty()) {
+      return Single.just(Collections.emptyMap());
+    }
+    return Multi.create(AddressRepository.chunk(ids))
+        // a mapper for each chunk, the queries of the chunks run concurrently
+        .flatMap(chunk -> dbClient.execute(dbExecute ->
+            dbExecute.namedQuery("select-persons-with-address-by-ids", (Object) chunk))
+            .map(new PersonWithAddressRowMapper()))
+        .collect(HashMap::new, (persons, person) -> persons.put(person.getId(), person));
+  }
+
+  /**
+   * Same as {@link #getPersonsByFirstName(String)} but with the address of each person loaded in
+   * the same query.
+   *
+   * @param firstName firstname to search
+   * @return persons with their address
+   */
+  public Multi<Person> getPersonsByFirstNameWithAddress(String firstName) {
+    return dbClient.execute(
+        dbExecute -> dbExecute.namedQuery("select-all-person-firstname-with-address", firstName))
+        .map(new PersonWithAddressRowMapper());
+  }
+
+  /**
+   * Same as {@link #getPersons()} but reading only the columns of {@code projection}.
+   *
+   * @param projection columns to read
+   * @return persons with the properties of the projection
+   */
+  public Multi<Person> getPersons(PersonProjection projection) {
+    return dbClient.execute(dbExecute -> dbExecute.query(projection.select()))
+        .map(new PersonProjectionRowMapper(projection.columnNames()));
+  }
+
+  /**
+   * Same as {@link #getPersonById(int)} but reading only the columns of {@code projection}.
+   *
+   * @param id person id
+   * @param projection columns to read
+   * @return person with the properties of the projection, empty if unknown
+   */
+  public Single<Person> getPersonById(int id, PersonProjection projection) {
+    PersonProjectionRowMapper mapper = new PersonProjectionRowMapper(projection.columnNames());
+    return dbClient.execute(
+        dbExecute -> dbExecute.get(projection.select() + " WHERE PERSON.ID=?", id))
+        .flatMapSingle(row -> row.map(value -> Single.just(mapper.apply(value)))
+            .orElseGet(Single::empty));
+  }
+
+  /**
+   * Same as {@link #getPersonsByFirstName(String)} but reading only the columns of
+   * {@code projection}.
+   *
+   * @param firstName firstname to search
+   * @param projection columns to read
+   * @return persons with the properties of the projection
+   */
+  public Multi<Person> getPersonsByFirstName(String firstName, PersonProjection projection) {
     return dbClient.execute(dbExecute ->
-        dbExecute.get("SELECT NEXTVAL('SEQ_ID_PERSON')")
-            .map(value -> value.get().column("NEXTVAL('SEQ_ID_PERSON')").as(Long.class)))
-        .get().intValue();
+        dbExecute.query(projection.select() + " WHERE PERSON.FIRSTNAME LIKE ?", firstName))
+        .map(new PersonProjectionRowMapper(projection.columnNames()));
+  }
+
+  /**
+   * Insert a person and its address in one transaction. Ids are reserved first, then both rows
+   * are inserted without blocking, the result is completed after the commit.
+   *
+   * @param person person to save with its address
+   * @return the person with its id and the id of its address
+   */
+  public Single<Person> createPerson(Person person) {
+    Address address = person.getAddress();
+    return addressRepository.nextId()
+        .flatMapSingle(addressId -> idGenerator.nextId().map(personId -> {
+          address.setId(addressId);
+          person.setId(personId);
+          return person;
+        }))
+        .flatMapSingle(this::insertPersonWithAddress)
+        .peek(saved -> logger.info("insert person OK"));
+  }
+
+  private Single<Person> insertPersonWithAddress(Person person) {
+    Address address = person.getAddress();
+    return dbClient.inTransaction(tx ->
+        tx.namedInsert("insert-address",
+            address.getId(), address.getStreet(), address.getZipCode(), address.getCity())
+            .flatMapSingle(count -> tx.namedInsert("insert-person",
+                person.getId(), person.getFirstname(), person.getLastname(), person.getAge(),
+                person.getGender().name(), address.getId()))
+            .map(count -> person))
+        .peek(saved -> addressRepository.cache(address));
+  }
+
+  /**
+   * Insert persons by batches of {@link #DEFAULT_BATCH_SIZE}.
+   *
+   * @param persons persons to save with their address
+   * @return saved persons with their id and the id of their address
+   * @see #createPersons(Multi, int)
+   */
+  public Multi<Person> createPersons(Multi<Person> persons) {
+    return createPersons(persons, DEFAULT_BATCH_SIZE);
+  }
+
+  /**
+   * Insert persons by batches : ids of a batch are reserved by one {@link IdGenerator#nextIds}
+   * call for the persons and one for the addresses, at most one sequence query each, then its
+   * addresses and its persons are inserted by one "insert-addresses" and one "insert-persons"
+   * execution in one transaction. One batch is inserted at a time and the next one is requested
+   * only when the saved persons are consumed.
+   *
+   * @param persons persons to save with their address
+   * @param batchSize max persons inserted by one transaction
+   * @return saved persons with their id and the id of their address, in the order received
+   */
+  public Multi<Person> createPersons(Multi<Person> persons, int batchSize) {
+    return Multi.create(new BatchPublisher<>(persons, batchSize))
+        .flatMap(batch -> addressRepository.withIds(batch.stream()
+            .map(Person::getAddress)
+            .collect(Collectors.toList()))
+            .flatMapSingle(addresses -> withIds(batch))
+            .flatMapSingle(this::insertPersonsWithAddresses), 1, false, 1)
+        .flatMapIterable(batch -> batch);
+  }
+
+  private Single<List<Person>> withIds(List<Person> persons) {
+    return idGenerator.nextIds(persons.size())
+        .map(ids -> {
+          for (int i = 0; i < persons.size(); i++) {
+            persons.get(i).setId(ids.get(i));
+          }
+          return persons;
+        });
+  }
+
+  private Single<List<Person>> insertPersonsWithAddresses(List<Person> persons) {
+    List<Address> addresses = persons.stream().map(Person::getAddress).collect(Collectors.toList());
+    return dbClient.inTransaction(tx ->
+        tx.namedInsert("insert-addresses", AddressRepository.batchParams(addresses))
+            .flatMapSingle(count -> tx.namedInsert("insert-persons", batchParams(persons)))
+            .map(count -> {
+              logger.info("insert persons count : " + count);
+              return persons;
+            }))
+        .peek(saved -> addresses.forEach(addressRepository::cache));
+  }
+
+  /**
+   * @return one array by column of "insert-persons"
+   */
+  static Object[] batchParams(List<Person> persons) {
+    int size = persons.size();
+    Integer[] ids = new Integer[size];
+    String[] firstnames = new String[size];
+    String[] lastnames = new String[size];
+    Integer[] ages = new Integer[size];
+    String[] genders = new String[size];
+    Integer[] addressIds = new Integer[size];
+    for (int i = 0; i < size; i++) {
+      Person person = persons.get(i);
+      ids[i] = person.getId();
+      firstnames[i] = person.getFirstname();
+      lastnames[i] = person.getLastname();
+      ages[i] = person.getAge();
+      genders[i] = person.getGender().name();
+      addressIds[i] = person.getAddress().getId();
+    }
+    return new Object[] {ids, firstnames, lastnames, ages, genders, addressIds};
   }
 }
@@ -0,0 +1,96 @@
+package fr.jufab.database.cache;
+
+import io.helidon.config.Config;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+import static io.helidon.config.ConfigSources.create;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BoundedCacheTest {
+
+  @Test
+  void shouldCountHitsAndMisses() {
+    BoundedCache<Integer, String> cache = new BoundedCache<>("hits-test", 10, 1, TimeUnit.MINUTES);
+    cache.put(1, "one");
+    assertThat(cache.get(1)).isEqualTo("one");
+    assertThat(cache.get(2)).isNull();
+    assertThat(cache.hits.getCount()).isEqualTo(1);
+    assertThat(cache.misses.getCount()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldEvictTheOldestEntriesWhenFull() {
+    BoundedCache<Integer, String> cache = new BoundedCache<>("size-test", 2, 1, TimeUnit.MINUTES);
+    cache.put(1, "one");
+    cache.put(2, "two");
+    cache.put(1, "one again");
+    cache.put(3, "three");
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.get(1)).isNull();
+    assertThat(cache.get(2)).isEqualTo("two");
+    assertThat(cache.get(3)).isEqualTo("three");
+    assertThat(cache.evictions.getCount()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldExpireEntries() throws InterruptedException {
+    BoundedCache<Integer, String> cache =
+        new BoundedCache<>("ttl-test", 10, 10, TimeUnit.MILLISECONDS);
+    cache.put(1, "one");
+    Thread.sleep(20);
+    assertThat(cache.get(1)).isNull();
+    assertThat(cache.size()).isZero();
+    assertThat(cache.evictions.getCount()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldForgetTheOrderOfExpiredAndInvalidatedEntries() throws InterruptedException {
+    BoundedCache<Integer, String> cache =
+        new BoundedCache<>("churn-test", 100, 5, TimeUnit.MILLISECONDS);
+    for (int cycle = 0; cycle < 20; cycle++) {
+      for (int key = 0; key < 50; key++) {
+        cache.put(key, "value");
+      }
+      Thread.sleep(10);
+      for (int key = 0; key < 25; key++) {
+        assertThat(cache.get(key)).isNull();
+      }
+      for (int key = 25; key < 50; key++) {
+        cache.invalidate(key);
+      }
+      assertThat(cache.size()).isZero();
+      assertThat(cache.orderedSize()).isZero();
+    }
+    for (int key = 0; key < 150; key++) {
+      cache.put(key % 75, "value");
+    }
+    assertThat(cache.size()).isEqualTo(75);
+    assertThat(cache.orderedSize()).isEqualTo(75);
+  }
+
+  @Test
+  void shouldEvictAnInvalidatedThenPutKeyAfterTheOlderOnes() {
+    BoundedCache<Integer, String> cache =
+        new BoundedCache<>("reinsert-test", 2, 1, TimeUnit.MINUTES);
+    cache.put(1, "one");
+    cache.put(2, "two");
+    cache.invalidate(1);
+    cache.put(1, "one again");
+    cache.put(3, "three");
+    assertThat(cache.get(2)).isNull();
+    assertThat(cache.get(1)).isEqualTo("one again");
+    assertThat(cache.get(3)).isEqualTo("three");
+    assertThat(cache.orderedSize()).isEqualTo(2);
+  }
+
+  @Test
+  void shouldKeepNothingWhenDisabled() {
+    BoundedCache<Integer, String> cache = BoundedCache.create("disabled-test",
+        Config.create(create(Map.of("enabled", "false"))));
+    cache.put(1, "one");
+    assertThat(cache.isEnabled()).isFalse();
+    assertThat(cache.get(1)).isNull();
+  }
+}
@@ -0,0 +1,74 @@
+package fr.jufab.database.id;
+
+import io.helidon.common.LogConfig;
+import io.helidon.common.reactive.Multi;
+import io.helidon.config.Config;
+import io.helidon.dbclient.DbClient;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static io.helidon.config.ConfigSources.classpath;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BlockIdGeneratorTest {
+  static DbClient dbClient;
+
+  @BeforeAll
+  public static void initTestDbClient() throws ExecutionException, InterruptedException {
+    Config config = Config.just(classpath("db-test.yaml"), classpath("statements.yaml"));
+    LogConfig.configureRuntime();
+    dbClient = DbClient.builder(config.get("db")).build();
+    dbClient.execute(dbExecute -> dbExecute.dml("CREATE SEQUENCE SEQ_ID_BLOCK_TEST")).get();
+  }
+
+  @Test
+  void shouldGiveUniqueIdsFromOneOrMoreBlocks() throws ExecutionException, InterruptedException {
+    BlockIdGenerator idGenerator = new BlockIdGenerator(dbClient, "SEQ_ID_BLOCK_TEST", 10);
+    List<Integer> ids = Multi.create(IntStream.range(0, 95).boxed().collect(Collectors.toList()))
+        .flatMap(i -> idGenerator.nextId())
+        .collectList()
+        .get();
+    assertThat(ids).hasSize(95)
+        .doesNotHaveDuplicates()
+        .allSatisfy(id -> assertThat(id).isBetween(1, 100));
+    assertThat(idGenerator.refills.getCount()).isEqualTo(10);
+  }
+
+  @Test
+  void shouldReserveTheIdsOfABatchTogether() throws ExecutionException, InterruptedException {
+    dbClient.execute(dbExecute -> dbExecute.dml("CREATE SEQUENCE SEQ_ID_BATCH_TEST")).get();
+    BlockIdGenerator idGenerator = new BlockIdGenerator(dbClient, "SEQ_ID_BATCH_TEST", 10);
+
+    assertThat(idGenerator.nextIds(4).get()).containsExactly(1, 2, 3, 4);
+    assertThat(idGenerator.nextIds(6).get()).containsExactly(5, 6, 7, 8, 9, 10);
+    // no room left in the first block
+    assertThat(idGenerator.nextIds(3).get()).containsExactly(11, 12, 13);
+    assertThat(idGenerator.refills.getCount()).isEqualTo(2);
+
+    // larger than a block : its own blocks 3 to 5, by one query
+    List<Integer> ids = idGenerator.nextIds(25).get();
+    assertThat(ids).hasSize(25).isSorted().doesNotHaveDuplicates();
+    assertThat(ids.get(0)).isEqualTo(21);
+    assertThat(ids.get(24)).isEqualTo(45);
+    assertThat(idGenerator.refills.getCount()).isEqualTo(5);
+    assertThat(idGenerator.nextId().get()).isEqualTo(14);
+  }
+
+  @Test
+  void shouldReadTheIdsOfABatchByOneQueryWithABlockOfOne()
+      throws ExecutionException, InterruptedException {
+    dbClient.execute(dbExecute -> dbExecute.dml("CREATE SEQUENCE SEQ_ID_ONE_TEST")).get();
+    assertThat(new SequenceIdGenerator(dbClient, "SEQ_ID_ONE_TEST").nextIds(5).get())
+        .containsExactly(1, 2, 3, 4, 5);
+  }
+
+  @Test
+  void shouldCallTheSequenceForEachIdWithABlockOfOne() {
+    assertThat(IdGenerator.create(dbClient, "SEQ_ID_BLOCK_TEST", 1))
+        .isInstanceOf(SequenceIdGenerator.class);
+  }
+}
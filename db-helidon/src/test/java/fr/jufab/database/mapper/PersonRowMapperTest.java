@@ -0,0 +1,53 @@
+package fr.jufab.database.mapper;
+
+import fr.jufab.database.dto.Gender;
+import fr.jufab.database.dto.Person;
+import io.helidon.common.LogConfig;
+import io.helidon.config.Config;
+import io.helidon.dbclient.DbClient;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static io.helidon.config.ConfigSources.classpath;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PersonRowMapperTest {
+  static DbClient dbClient;
+
+  @BeforeAll
+  public static void initTestDbClient() {
+    Config config = Config.just(classpath("db-test.yaml"), classpath("statements.yaml"));
+    LogConfig.configureRuntime();
+    dbClient = DbClient.builder(config.get("db")).build();
+  }
+
+  @Test
+  void shouldMapColumnsInAnyOrder() throws ExecutionException, InterruptedException {
+    List<Person> persons = dbClient.execute(dbExecute -> dbExecute.query(
+        "SELECT * FROM ("
+            + "SELECT 'MAN' GENDER, 2 ADDRESS_ID, 'first1' FIRSTNAME, 1 ID, 'last' LASTNAME, 30 AGE"
+            + " UNION ALL SELECT 'WOMAN', 4, 'first2', 3, 'last', 40)"))
+        .map(new PersonRowMapper())
+        .collectList()
+        .get();
+    assertThat(persons).hasSize(2);
+    assertThat(persons.get(1))
+        .hasFieldOrPropertyWithValue("id", 3)
+        .hasFieldOrPropertyWithValue("firstname", "first2")
+        .hasFieldOrPropertyWithValue("age", 40)
+        .hasFieldOrPropertyWithValue("gender", Gender.WOMAN);
+    assertThat(persons.get(1).getAddress().getId()).isEqualTo(4);
+  }
+
+  @Test
+  void shouldFailOnMissingColumn() {
+    assertThatThrownBy(() -> dbClient.execute(dbExecute -> dbExecute.query("SELECT 1 ID"))
+        .map(new PersonRowMapper())
+        .collectList()
+        .get())
+        .hasRootCauseInstanceOf(IllegalStateException.class);
+  }
+}
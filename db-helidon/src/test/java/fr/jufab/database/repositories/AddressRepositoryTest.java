@@ -1,10 +1,17 @@
 package fr.jufab.database.repositories;
 
+import fr.jufab.database.cache.BoundedCache;
 import fr.jufab.database.dto.Address;
+import fr.jufab.database.id.IdGenerator;
 import io.helidon.common.LogConfig;
+import io.helidon.common.reactive.Multi;
 import io.helidon.config.Config;
 import io.helidon.dbclient.DbClient;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -25,9 +32,11 @@ class AddressRepositoryTest {
     Config dbConfig = config.get("db");
     dbClient = DbClient.builder(dbConfig).build();
     dbClient.execute(dbExecute -> dbExecute.namedDml("create-address"))
-        .thenAccept(value -> System.out.println("CREATE TABLE ADDRESS OK"));
+        .thenAccept(value -> System.out.println("CREATE TABLE ADDRESS OK"))
+        .await();
     dbClient.execute(dbExecute -> dbExecute.namedDml("create-sequence-address"))
-        .thenAccept(value -> System.out.println("CREATE SEQUENCE ADDRESS OK"));
+        .thenAccept(value -> System.out.println("CREATE SEQUENCE ADDRESS OK"))
+        .await();
   }
 
   @BeforeEach
@@ -50,8 +59,48 @@ class AddressRepositoryTest {
   @Test
   void shouldGetAnAddressById() throws ExecutionException, InterruptedException {
     Address addressCreated = createAddress();
-    Thread.sleep(100);
     Address addressFound = addressRepository.getAddressById(addressCreated.getId()).get();
     assertThat(addressFound).isNotNull().hasFieldOrProperty("id");
   }
-}
\ No newline at end of file
+
+  @Test
+  void shouldGetAddressesByIds() throws ExecutionException, InterruptedException {
+    Address firstAddress = createAddress();
+    Address secondAddress = createAddress();
+    Map<Integer, Address> addresses = addressRepository.getAddressesByIds(
+        Arrays.asList(firstAddress.getId(), secondAddress.getId(), firstAddress.getId(), -1)).get();
+    assertThat(addresses).hasSize(2)
+        .containsEntry(firstAddress.getId(), firstAddress)
+        .containsEntry(secondAddress.getId(), secondAddress)
+        .doesNotContainKey(-1);
+  }
+
+  @Test
+  void shouldCreateAddressesByBatches() throws ExecutionException, InterruptedException {
+    List<Address> addresses = addressRepository.createAddresses(Multi.just(
+        new Address("street1", "zipCode", "city"),
+        new Address("street2", "zipCode", "city"),
+        new Address("street3", "zipCode", "city")), 2).collectList().get();
+    assertThat(addresses).hasSize(3)
+        .extracting(Address::getStreet).containsExactly("street1", "street2", "street3");
+    Map<Integer, Address> addressesFound = addressRepository.getAddressesByIds(
+        Arrays.asList(addresses.get(0).getId(), addresses.get(2).getId())).get();
+    assertThat(addressesFound).containsValues(addresses.get(0), addresses.get(2));
+  }
+
+  @Test
+  void shouldReadCreatedAddressesFromTheCacheUntilInvalidated()
+      throws ExecutionException, InterruptedException {
+    AddressRepository cachedRepository = new AddressRepository(dbClient,
+        IdGenerator.create(dbClient, AddressRepository.SEQUENCE),
+        new BoundedCache<>("address-test", 10, 1, TimeUnit.MINUTES));
+    Address created = cachedRepository.createAddress(new Address("street", "zipCode", "city")).get();
+    assertThat(cachedRepository.getAddressById(created.getId()).get()).isSameAs(created);
+    assertThat(cachedRepository.getAddressesByIds(Arrays.asList(created.getId())).get())
+        .containsEntry(created.getId(), created);
+    cachedRepository.invalidate(created.getId());
+    Address found = cachedRepository.getAddressById(created.getId()).get();
+    assertThat(found).isNotSameAs(created).isEqualTo(created);
+    assertThat(cachedRepository.getAddressById(created.getId()).get()).isSameAs(found);
+  }
+}
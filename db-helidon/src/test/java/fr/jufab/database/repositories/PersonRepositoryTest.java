@@ -2,13 +2,21 @@ package fr.jufab.database.repositories;
 
 import fr.jufab.database.dto.Address;
 import fr.jufab.database.dto.Gender;
+import fr.jufab.database.dto.Page;
 import fr.jufab.database.dto.Person;
 import fr.jufab.database.repositories.PersonRepository;
 import io.helidon.common.LogConfig;
+import io.helidon.common.reactive.Multi;
 import io.helidon.config.Config;
+import io.helidon.config.ConfigSources;
 import io.helidon.dbclient.DbClient;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
@@ -22,6 +30,7 @@ class PersonRepositoryTest {
   public static final String LASTNAME = "lastname";
   public static final int AGE = 40;
   static DbClient dbClient;
+  static Config statements;
 
   PersonRepository personRepository;
 
@@ -30,15 +39,29 @@ class PersonRepositoryTest {
     Config config = Config.just(classpath("db-test.yaml"),classpath("statements.yaml"));
     LogConfig.configureRuntime();
     Config dbConfig = config.get("db");
+    statements = dbConfig.get("statements");
     dbClient = DbClient.builder(dbConfig).build();
     dbClient.execute(dbExecute -> dbExecute.namedDml("create-address"))
-        .thenAccept(value -> System.out.println("CREATE TABLE ADDRESS OK"));
+        .thenAccept(value -> System.out.println("CREATE TABLE ADDRESS OK"))
+        .await();
     dbClient.execute(dbExecute -> dbExecute.namedDml("create-sequence-address"))
-        .thenAccept(value -> System.out.println("CREATE SEQUENCE ADDRESS OK"));
+        .thenAccept(value -> System.out.println("CREATE SEQUENCE ADDRESS OK"))
+        .await();
     dbClient.execute(dbExecute -> dbExecute.namedDml("create-person"))
-        .thenAccept(value -> System.out.println("CREATE TABLE PERSON OK"));
+        .thenAccept(value -> System.out.println("CREATE TABLE PERSON OK"))
+        .await();
+    dbClient.execute(dbExecute -> dbExecute.namedDml("add-person-firstname-upper"))
+        .thenAccept(value -> System.out.println("ADD COLUMN PERSON FIRSTNAME UPPER OK"))
+        .await();
+    dbClient.execute(dbExecute -> dbExecute.namedDml("create-index-person-firstname"))
+        .thenAccept(value -> System.out.println("CREATE INDEX PERSON FIRSTNAME OK"))
+        .await();
+    dbClient.execute(dbExecute -> dbExecute.namedDml("create-index-person-firstname-upper"))
+        .thenAccept(value -> System.out.println("CREATE INDEX PERSON FIRSTNAME UPPER OK"))
+        .await();
     dbClient.execute(dbExecute -> dbExecute.namedDml("create-sequence-person"))
-        .thenAccept(value -> System.out.println("CREATE SEQUENCE PERSON OK"));
+        .thenAccept(value -> System.out.println("CREATE SEQUENCE PERSON OK"))
+        .await();
   }
 
   @BeforeEach
@@ -49,11 +72,146 @@ class PersonRepositoryTest {
   @Test
   void shouldCreateAPerson() throws ExecutionException, InterruptedException {
     Person personResult = createPerson();
-    Thread.sleep(100);
     assertThat(personResult).isNotNull().hasFieldOrProperty("id");
     assertThat(personResult.getAddress()).isNotNull().hasFieldOrProperty("id");
   }
 
+  @Test
+  void shouldReadAPersonAsSoonAsCreated() throws ExecutionException, InterruptedException {
+    Person personCreated = createPerson();
+    Person personFound = personRepository.getPersonByIdWithAddress(personCreated.getId()).get();
+    assertThat(personFound).isEqualTo(personCreated);
+  }
+
+  @Test
+  void shouldCreatePersonsByBatches() throws ExecutionException, InterruptedException {
+    List<Person> persons = IntStream.range(0, 25)
+        .mapToObj(i -> new Person(FIRSTNAME + i, LASTNAME, AGE,
+            new Address("street", "zipCode", "city"), Gender.WOMAN))
+        .collect(Collectors.toList());
+    List<Person> personsCreated =
+        personRepository.createPersons(Multi.create(persons), 10).collectList().get();
+    assertThat(personsCreated).hasSize(25).doesNotHaveDuplicates();
+    assertThat(personsCreated.get(24).getFirstname()).isEqualTo(FIRSTNAME + 24);
+    Person personFound =
+        personRepository.getPersonByIdWithAddress(personsCreated.get(24).getId()).get();
+    assertThat(personFound).isEqualTo(personsCreated.get(24));
+  }
+
+  @Test
+  void shouldReadOnlyTheColumnsOfTheProjection() throws ExecutionException, InterruptedException {
+    Person personCreated = createPerson();
+    Person personFound = personRepository.getPersonById(personCreated.getId(),
+        PersonProjection.of(Set.of("firstname", "gender"), Set.of())).get();
+    assertThat(personFound)
+        .hasFieldOrPropertyWithValue("id", personCreated.getId())
+        .hasFieldOrPropertyWithValue("firstname", FIRSTNAME)
+        .hasFieldOrPropertyWithValue("gender", Gender.MAN)
+        .hasFieldOrPropertyWithValue("lastname", null)
+        .hasFieldOrPropertyWithValue("age", 0);
+    assertThat(personFound.getAddress())
+        .isEqualTo(new Address(personCreated.getAddress().getId()));
+    assertThat(personRepository.getPersonById(-1, PersonProjection.ALL).toOptionalSingle().get())
+        .isEmpty();
+  }
+
+  @Test
+  void shouldJoinTheAddressColumnsOfTheProjection()
+      throws ExecutionException, InterruptedException {
+    createPerson();
+    List<Person> persons = personRepository.getPersonsByFirstName(FIRSTNAME,
+        PersonProjection.of(Set.of("lastname"), Set.of("city"))).collectList().get();
+    assertThat(persons).isNotEmpty().allSatisfy(person -> {
+      assertThat(person.getLastname()).isEqualTo(LASTNAME);
+      assertThat(person.getAddress())
+          .hasFieldOrPropertyWithValue("city", "city")
+          .hasFieldOrPropertyWithValue("street", null);
+    });
+    assertThat(personRepository.getPersons(PersonProjection.ALL).collectList().get())
+        .containsAll(personRepository.getPersonsWithAddress().collectList().get());
+  }
+
+  @Test
+  void shouldGetPersonsByIdsWithAddress() throws ExecutionException, InterruptedException {
+    Person first = createPerson();
+    Person second = createPerson();
+    Map<Integer, Person> persons = personRepository.getPersonsByIdsWithAddress(
+        Arrays.asList(first.getId(), second.getId(), first.getId(), -1)).get();
+    assertThat(persons).hasSize(2)
+        .containsEntry(first.getId(), first)
+        .containsEntry(second.getId(), second);
+  }
+
+  @Test
+  void shouldGetPersonsByFirstNamePrefix() throws ExecutionException, InterruptedException {
+    personRepository.createPersons(Multi.just(
+        new Person("Prefix_One", LASTNAME, AGE, new Address("street", "zipCode", "city"),
+            Gender.MAN),
+        new Person("PREFIX_TWO", LASTNAME, AGE, new Address("street", "zipCode", "city"),
+            Gender.MAN),
+        new Person("PrefixThree", LASTNAME, AGE, new Address("street", "zipCode", "city"),
+            Gender.MAN))).collectList().get();
+    assertThat(personRepository.getPersonsByFirstNamePrefix("Prefix_", false).collectList().get())
+        .extracting(Person::getFirstname).containsExactly("Prefix_One");
+    assertThat(personRepository.getPersonsByFirstNamePrefix("prefix_", true).collectList().get())
+        .extracting(Person::getFirstname).containsExactlyInAnyOrder("Prefix_One", "PREFIX_TWO");
+    assertThat(personRepository.getPersonsByFirstNamePrefixWithAddress("prefix", true)
+        .collectList().get())
+        .hasSize(3)
+        .allSatisfy(person -> assertThat(person.getAddress().getStreet()).isEqualTo("street"));
+  }
+
+  @Test
+  void shouldSearchFirstNamePrefixesWithTheIndexes() {
+    assertThat(explain("select-person-firstname-prefix", "fir%"))
+        .contains("IDX_PERSON_FIRSTNAME:");
+    assertThat(explain("select-person-firstname-upper-prefix", "FIR%"))
+        .contains("IDX_PERSON_FIRSTNAME_UPPER:");
+  }
+
+  @Test
+  void shouldAddTheUpperFirstNameToAPersonTableCreatedWithoutIt() {
+    Config config = Config.just(
+        ConfigSources.create(Map.of("db.connection.url", "jdbc:h2:mem:migration")),
+        classpath("db-test.yaml"), classpath("statements.yaml"));
+    DbClient migrated = DbClient.builder(config.get("db")).build();
+    migrated.execute(dbExecute -> dbExecute.namedDml("create-address")
+        .flatMapSingle(count -> dbExecute.dml("CREATE TABLE PERSON (ID INT NOT NULL PRIMARY KEY, "
+            + "FIRSTNAME VARCHAR NOT NULL, LASTNAME VARCHAR NOT NULL, AGE INT NOT NULL, "
+            + "GENDER VARCHAR NOT NULL, ADDRESS_ID INT NOT NULL)"))
+        .flatMapSingle(count -> dbExecute.dml(
+            "INSERT INTO PERSON VALUES(1, 'firstname', 'lastname', 40, 'MAN', 1)"))
+        .flatMapSingle(count -> dbExecute.namedDml("create-person"))
+        .flatMapSingle(count -> dbExecute.namedDml("add-person-firstname-upper"))
+        .flatMapSingle(count -> dbExecute.namedDml("add-person-firstname-upper"))
+        .flatMapSingle(count -> dbExecute.namedDml("create-index-person-firstname-upper")))
+        .await();
+
+    List<String> firstNames = migrated.execute(dbExecute ->
+        dbExecute.namedQuery("select-person-firstname-upper-prefix", "FIR%"))
+        .map(row -> row.column("FIRSTNAME").as(String.class))
+        .collectList()
+        .await();
+    assertThat(firstNames).containsExactly("firstname");
+  }
+
+  @Test
+  void shouldEscapeLikeWildcardsOfPrefixes() {
+    assertThat(PersonRepository.likePrefix("a_b%c\\", false)).isEqualTo("a\\_b\\%c\\\\%");
+    assertThat(PersonRepository.likePrefix("ab", true)).isEqualTo("AB%");
+  }
+
+  private String explain(String statementName, String pattern) {
+    String statement = statements.get(statementName).asString().get();
+    return dbClient.execute(dbExecute -> dbExecute.createQuery("EXPLAIN " + statement)
+        .addParam(pattern)
+        .execute()
+        .map(row -> row.column(1).as(String.class))
+        .collectList())
+        .await()
+        .get(0);
+  }
+
   private Person createPerson() throws ExecutionException, InterruptedException {
     Address address = new Address("street", "zipCode", "city");
     Person person = new Person(FIRSTNAME, LASTNAME, AGE, address, Gender.MAN);
@@ -89,5 +247,44 @@ class PersonRepositoryTest {
       List<Person> persons = personRepository.getPersonsByFirstName("TEST").collectList().get();
       assertThat(persons).isNotNull().hasSize(0);
     }
+
+    @Test
+    void shouldGetAPersonWithAddressById() throws ExecutionException, InterruptedException {
+      Person person = personRepository.getPersonByIdWithAddress(1).get();
+      assertThat(person).isNotNull().hasFieldOrPropertyWithValue("lastname", LASTNAME);
+      assertThat(person.getAddress()).isNotNull()
+          .hasFieldOrPropertyWithValue("street", "street")
+          .hasFieldOrPropertyWithValue("city", "city");
+    }
+
+    @Test
+    void shouldGetPersonsWithAddress() throws ExecutionException, InterruptedException {
+      List<Person> persons = personRepository.getPersonsWithAddress().collectList().get();
+      assertThat(persons).isNotEmpty()
+          .allSatisfy(person -> assertThat(person.getAddress().getStreet()).isEqualTo("street"));
+    }
+
+    @Test
+    void shouldGetPersonsWithAddressByName() throws ExecutionException, InterruptedException {
+      List<Person> persons =
+          personRepository.getPersonsByFirstNameWithAddress(FIRSTNAME).collectList().get();
+      assertThat(persons).isNotEmpty()
+          .allSatisfy(person -> assertThat(person.getAddress().getZipCode()).isEqualTo("zipCode"));
+    }
+
+    @Test
+    void shouldGetAllPersonsPageByPage() throws ExecutionException, InterruptedException {
+      List<Person> persons = personRepository.getPersons().collectList().get();
+      Page<Person> page = personRepository.getPersonsPage(0, 2).get();
+      assertThat(page.getItems()).hasSize(2);
+      int read = page.getItems().size();
+      while (page.getNextCursor() != null) {
+        page = personRepository.getPersonsWithAddressPage(page.getNextCursor(), 2).get();
+        assertThat(page.getItems()).isNotEmpty()
+            .allSatisfy(person -> assertThat(person.getAddress().getStreet()).isNotNull());
+        read += page.getItems().size();
+      }
+      assertThat(read).isEqualTo(persons.size());
+    }
   }
-}
\ No newline at end of file
+}
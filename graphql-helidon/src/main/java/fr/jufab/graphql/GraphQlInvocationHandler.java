@@ -0,0 +1,149 @@
+package fr.jufab.graphql;
+
+import graphql.ExceptionWhileDataFetching;
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.GraphQLError;
+import graphql.execution.instrumentation.Instrumentation;
+import graphql.execution.instrumentation.SimpleInstrumentation;
+import graphql.execution.preparsed.NoOpPreparsedDocumentProvider;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.SchemaPrinter;
+import io.helidon.graphql.server.InvocationHandler;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import org.dataloader.DataLoaderRegistry;
+
+/**
+ * Execute the GraphQL requests with their own {@link DataLoaderRegistry}, the default Helidon
+ * handler has no way to give one to the execution input.
+ * <p>
+ * As the default handler, the message of an unchecked exception of a data fetcher is replaced by
+ * {@link #DEFAULT_ERROR_MESSAGE} and logged. The data fetchers return the futures of their queries,
+ * {@link #executeAsync(String, String, Map)} gives the result without holding a thread meanwhile.
+ *
+ * @author jufab
+ * @version 1.0
+ */
+public class GraphQlInvocationHandler implements InvocationHandler {
+  final static Logger LOGGER = Logger.getLogger(GraphQlInvocationHandler.class.getName());
+  public static final String DEFAULT_ERROR_MESSAGE = "Server Error";
+
+  private final GraphQLSchema schema;
+  private final GraphQL graphQL;
+  private final Supplier<DataLoaderRegistry> dataLoaderRegistry;
+
+  /**
+   * @param schema executable schema
+   * @param dataLoaderRegistry new registry for each request, its loaders cache for one request only
+   */
+  public GraphQlInvocationHandler(GraphQLSchema schema,
+      Supplier<DataLoaderRegistry> dataLoaderRegistry) {
+    this(schema, dataLoaderRegistry, NoOpPreparsedDocumentProvider.INSTANCE,
+        SimpleInstrumentation.INSTANCE);
+  }
+
+  /**
+   * @param schema executable schema
+   * @param dataLoaderRegistry new registry for each request, its loaders cache for one request only
+   * @param documentProvider parsed and validated documents of the queries
+   * @param instrumentation instrumentation of the executions, graphql-java adds the data loader
+   * dispatch to it
+   */
+  public GraphQlInvocationHandler(GraphQLSchema schema,
+      Supplier<DataLoaderRegistry> dataLoaderRegistry,
+      PreparsedDocumentProvider documentProvider, Instrumentation instrumentation) {
+    this.schema = schema;
+    this.graphQL = GraphQL.newGraphQL(schema)
+        .preparsedDocumentProvider(documentProvider)
+        .instrumentation(instrumentation)
+        .build();
+    this.dataLoaderRegistry = dataLoaderRegistry;
+  }
+
+  /**
+   * Blocking execution of Helidon's {@link io.helidon.graphql.server.GraphQlSupport}, it waits for
+   * {@link #executeAsync(String, String, Map)}.
+   */
+  @Override public Map<String, Object> execute(String query, String operationName,
+      Map<String, Object> variables) {
+    return executeAsync(query, operationName, variables).toCompletableFuture().join();
+  }
+
+  /**
+   * Execute a request without waiting for its data fetchers : the stage completes on the thread
+   * of the last query, the calling thread is free as soon as the queries are sent.
+   *
+   * @param query GraphQL query
+   * @param operationName operation of the query to execute, may be null
+   * @param variables variables of the query, may be null
+   * @return stage of the result in the GraphQL specification, never failed
+   */
+  public CompletionStage<Map<String, Object>> executeAsync(String query, String operationName,
+      Map<String, Object> variables) {
+    try {
+      return graphQL.executeAsync(ExecutionInput.newExecutionInput()
+          .query(query)
+          .operationName(operationName)
+          .variables(variables == null ? Collections.emptyMap() : variables)
+          .dataLoaderRegistry(dataLoaderRegistry.get())
+          .build())
+          .thenApply(this::toSpecification)
+          .exceptionally(e -> failed(query, e));
+    } catch (RuntimeException e) {
+      return CompletableFuture.completedFuture(failed(query, e));
+    }
+  }
+
+  private Map<String, Object> toSpecification(ExecutionResult result) {
+    Map<String, Object> specification = result.toSpecification();
+    if (!result.getErrors().isEmpty()) {
+      specification.put("errors", result.getErrors().stream()
+          .map(this::toSpecification)
+          .collect(Collectors.toList()));
+    }
+    return specification;
+  }
+
+  private Map<String, Object> failed(String query, Throwable e) {
+    LOGGER.log(Level.WARNING, "Failed to execute " + query, e);
+    return Map.of("errors", List.of(Map.of("message", DEFAULT_ERROR_MESSAGE)));
+  }
+
+  private Map<String, Object> toSpecification(GraphQLError error) {
+    Map<String, Object> specification = error.toSpecification();
+    if (error instanceof ExceptionWhileDataFetching
+        && ((ExceptionWhileDataFetching) error).getException() instanceof RuntimeException) {
+      LOGGER.log(Level.WARNING, error.getMessage(),
+          ((ExceptionWhileDataFetching) error).getException());
+      specification.put("message", DEFAULT_ERROR_MESSAGE);
+    }
+    return specification;
+  }
+
+  @Override public String schemaString() {
+    return new SchemaPrinter().print(schema);
+  }
+
+  @Override public String defaultErrorMessage() {
+    return DEFAULT_ERROR_MESSAGE;
+  }
+
+  @Override public Set<String> blacklistedExceptions() {
+    return Collections.emptySet();
+  }
+
+  @Override public Set<String> whitelistedExceptions() {
+    return Collections.emptySet();
+  }
+}
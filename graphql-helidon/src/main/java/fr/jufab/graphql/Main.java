@@ -1,9 +1,15 @@
 package fr.jufab.graphql;
 
+import fr.jufab.database.cache.BoundedCache;
+import fr.jufab.database.id.IdGenerator;
 import fr.jufab.database.repositories.AddressRepository;
 import fr.jufab.database.repositories.PersonRepository;
 import fr.jufab.graphql.datafetcher.AddressDataFetcher;
 import fr.jufab.graphql.datafetcher.PersonDataFetcher;
+import fr.jufab.graphql.document.DocumentCache;
+import fr.jufab.graphql.document.PersistedQuerySupport;
+import fr.jufab.graphql.instrumentation.QueryCostInstrumentation;
+import graphql.execution.instrumentation.SimpleInstrumentation;
 import graphql.schema.GraphQLSchema;
 import graphql.schema.idl.RuntimeWiring;
 import graphql.schema.idl.SchemaGenerator;
@@ -12,6 +18,7 @@ import graphql.schema.idl.TypeDefinitionRegistry;
 import graphql.schema.idl.TypeRuntimeWiring;
 import io.helidon.common.LogConfig;
 import io.helidon.common.configurable.Resource;
+import io.helidon.common.configurable.ThreadPoolSupplier;
 import io.helidon.config.Config;
 import io.helidon.dbclient.DbClient;
 import io.helidon.dbclient.health.DbClientHealthCheck;
@@ -21,7 +28,10 @@ import io.helidon.metrics.MetricsSupport;
 import io.helidon.webserver.Routing;
 import io.helidon.webserver.WebServer;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
 import java.util.logging.Logger;
+import org.dataloader.DataLoader;
+import org.dataloader.DataLoaderRegistry;
 
 import static io.helidon.config.ConfigSources.classpath;
 
@@ -57,37 +67,63 @@ public final class Main {
 
     initTable(dbClient);
 
+    AddressRepository addressRepository = new AddressRepository(dbClient,
+        IdGenerator.create(dbClient, AddressRepository.SEQUENCE, dbConfig.get("id-generator")),
+        BoundedCache.create(AddressRepository.CACHE_NAME, dbConfig.get("address-cache")));
+    PersonRepository personRepository = new PersonRepository(dbClient, addressRepository,
+        IdGenerator.create(dbClient, PersonRepository.SEQUENCE, dbConfig.get("id-generator")));
+    AddressDataFetcher addressDataFetcher = new AddressDataFetcher(addressRepository);
+    PersonDataFetcher personDataFetcher = new PersonDataFetcher(personRepository);
+
     HealthSupport health = HealthSupport.builder()
         .addLiveness(DbClientHealthCheck.builder(dbClient).query().build())
         .build();
 
+    Config graphQlConfig = config.get("graphql");
+    GraphQlInvocationHandler invocationHandler = new GraphQlInvocationHandler(
+        buildSchema(buildRuntimeWiring(personDataFetcher, addressDataFetcher)),
+        () -> buildDataLoaderRegistry(addressDataFetcher),
+        DocumentCache.create(graphQlConfig.get("document-cache")),
+        graphQlConfig.get("query-limits.enabled").asBoolean().orElse(true)
+            ? QueryCostInstrumentation.create(graphQlConfig.get("query-limits"))
+            : SimpleInstrumentation.INSTANCE);
+    ExecutorService graphQlExecutor = ThreadPoolSupplier.builder()
+        .threadNamePrefix("graphql-")
+        .build()
+        .get();
+
+    Routing.Builder routing = Routing.builder()
+        .register(health)                   // Health at "/health"
+        .register(MetricsSupport.create()); // Metrics at "/metrics"
+    if (graphQlConfig.get("persisted-queries.enabled").asBoolean().orElse(false)) {
+      // before GraphQlSupport, it answers the POST requests itself
+      routing.register(PersistedQuerySupport.create(graphQlConfig.get("persisted-queries"),
+          invocationHandler, graphQlExecutor));
+    }
+    routing.register(GraphQlSupport.builder()
+        .invocationHandler(invocationHandler)
+        .executor(graphQlExecutor)
+        .build());
+
     WebServer server = WebServer.builder()
-        .routing(Routing.builder()
-            .register(health)                   // Health at "/health"
-            .register(MetricsSupport.create())  // Metrics at "/metrics"
-            .register(GraphQlSupport.create(buildSchema(dbClient)))
-            .build())
+        .routing(routing.build())
         .config(config.get("server"))
         .build();
     server.start();
     return server;
   }
 
-  private static GraphQLSchema buildSchema(DbClient dbClient) {
+  static GraphQLSchema buildSchema(RuntimeWiring runtimeWiring) {
     SchemaParser schemaParser = new SchemaParser();
     Resource schemaResource = Resource.create(PERSON_GRAPHQLS);
     TypeDefinitionRegistry typeDefinitionRegistry =
         schemaParser.parse(schemaResource.string(StandardCharsets.UTF_8));
     SchemaGenerator schemaGenerator = new SchemaGenerator();
-    return schemaGenerator.makeExecutableSchema(typeDefinitionRegistry,
-        buildRuntimeWiring(dbClient));
+    return schemaGenerator.makeExecutableSchema(typeDefinitionRegistry, runtimeWiring);
   }
 
-  private static RuntimeWiring buildRuntimeWiring(DbClient dbClient) {
-    AddressRepository addressRepository = new AddressRepository(dbClient);
-    AddressDataFetcher addressDataFetcher = new AddressDataFetcher(addressRepository);
-    PersonRepository personRepository = new PersonRepository(dbClient);
-    PersonDataFetcher personDataFetcher = new PersonDataFetcher(personRepository);
+  static RuntimeWiring buildRuntimeWiring(PersonDataFetcher personDataFetcher,
+      AddressDataFetcher addressDataFetcher) {
     return RuntimeWiring.newRuntimeWiring()
         .type(TypeRuntimeWiring.newTypeWiring("Query")
             .dataFetcher("persons", personDataFetcher.getPersons()))
@@ -104,6 +140,18 @@ public final class Main {
         .build();
   }
 
+  /**
+   * Data loaders of one request : a key is loaded once per request, the cache does not outlive it.
+   *
+   * @param addressDataFetcher address data fetcher
+   * @return new registry
+   */
+  static DataLoaderRegistry buildDataLoaderRegistry(AddressDataFetcher addressDataFetcher) {
+    return new DataLoaderRegistry()
+        .register(AddressDataFetcher.ADDRESS_LOADER,
+            DataLoader.newMappedDataLoader(addressDataFetcher.addressBatchLoader()));
+  }
+
   /**
    * Init Table Schema
    *
@@ -114,7 +162,10 @@ public final class Main {
         .thenAccept(value -> LOGGER.info("CREATE TABLE ADDRESS OK"));
     dbClient.execute(dbExecute -> dbExecute.namedDml("create-sequence-address"))
         .thenAccept(value -> LOGGER.info("CREATE SEQUENCE ADDRESS OK"));
-    dbClient.execute(dbExecute -> dbExecute.namedDml("create-person"))
+    dbClient.execute(dbExecute -> dbExecute.namedDml("create-person")
+        .flatMapSingle(count -> dbExecute.namedDml("add-person-firstname-upper"))
+        .flatMapSingle(count -> dbExecute.namedDml("create-index-person-firstname"))
+        .flatMapSingle(count -> dbExecute.namedDml("create-index-person-firstname-upper")))
         .thenAccept(value -> LOGGER.info("CREATE TABLE PERSON OK"));
     dbClient.execute(dbExecute -> dbExecute.namedDml("create-sequence-person"))
         .thenAccept(value -> LOGGER.info("CREATE SEQUENCE PERSON OK"));
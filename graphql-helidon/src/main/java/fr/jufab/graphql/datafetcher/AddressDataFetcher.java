@@ -4,12 +4,17 @@ import fr.jufab.database.dto.Address;
 import fr.jufab.database.dto.Person;
 import fr.jufab.database.repositories.AddressRepository;
 import graphql.schema.DataFetcher;
+import graphql.schema.DataFetchingFieldSelectionSet;
+import java.util.concurrent.CompletableFuture;
+import org.dataloader.DataLoader;
+import org.dataloader.MappedBatchLoader;
 
 /**
  * @author jufab
  * @version 1.0
  */
 public class AddressDataFetcher {
+  public static final String ADDRESS_LOADER = "address";
   AddressRepository addressRepository;
 
   public AddressDataFetcher(
@@ -17,15 +22,55 @@ public class AddressDataFetcher {
     this.addressRepository = addressRepository;
   }
 
-  public DataFetcher<Address> getAddressById() {
-    return environment -> this.addressRepository.getAddressById(
-        environment.getArgument("id") == null ? ((Person) environment.getSource()).getAddress()
-            .getId() : environment.getArgument("id")).get();
+  /**
+   * The address of a person is taken from the person when its selected fields were read with it.
+   * Otherwise it is loaded by the {@link #ADDRESS_LOADER} data loader of the request : the
+   * addresses of all the persons of a level are read with one set-based query, each id once.
+   */
+  public DataFetcher<CompletableFuture<Address>> getAddressById() {
+    return environment -> {
+      if (environment.getArgument("id") == null) {
+        Address address = ((Person) environment.getSource()).getAddress();
+        if (isRead(address, environment.getSelectionSet())) {
+          return CompletableFuture.completedFuture(address);
+        }
+        DataLoader<Integer, Address> addressLoader = environment.getDataLoader(ADDRESS_LOADER);
+        return addressLoader.load(address.getId());
+      }
+      return this.addressRepository.getAddressById(environment.getArgument("id"))
+          .toCompletableFuture();
+    };
   }
 
-  public DataFetcher<Address> createAddress() {
+  /**
+   * @return true if every selected field of the address has a value, the columns are not null
+   */
+  static boolean isRead(Address address, DataFetchingFieldSelectionSet selectionSet) {
+    return selectionSet.getFields("*").stream().allMatch(field -> {
+      switch (field.getName()) {
+        case "street":
+          return address.getStreet() != null;
+        case "zipCode":
+          return address.getZipCode() != null;
+        case "city":
+          return address.getCity() != null;
+        default:
+          // id of the address is always read with the person
+          return true;
+      }
+    });
+  }
+
+  /**
+   * @return batch loader of the addresses by id, unknown ids are absent from its result
+   */
+  public MappedBatchLoader<Integer, Address> addressBatchLoader() {
+    return ids -> addressRepository.getAddressesByIds(ids);
+  }
+
+  public DataFetcher<CompletableFuture<Address>> createAddress() {
     return environment -> this.addressRepository.createAddress(
         new Address(environment.getArgument("street"), environment.getArgument("zipCode"),
-            environment.getArgument("city"))).get();
+            environment.getArgument("city"))).toCompletableFuture();
   }
 }
@@ -3,13 +3,25 @@ package fr.jufab.graphql.datafetcher;
 import fr.jufab.database.dto.Address;
 import fr.jufab.database.dto.Gender;
 import fr.jufab.database.dto.Person;
+import fr.jufab.database.repositories.PersonProjection;
 import fr.jufab.database.repositories.PersonRepository;
 import graphql.language.IntValue;
 import graphql.language.ObjectValue;
 import graphql.schema.DataFetcher;
+import graphql.schema.DataFetchingFieldSelectionSet;
+import graphql.schema.SelectedField;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 /**
+ * The data fetchers return the futures of the repository queries : the request thread does not
+ * wait for the database and graphql-java resolves the sibling fields concurrently.
+ * <p>
+ * The persons are read with only the columns of their selected fields. The address is read in the
+ * same query when one of its fields other than the id is selected.
+ *
  * @author jufab
  * @version 1.0
  */
@@ -20,25 +32,50 @@ public class PersonDataFetcher {
     this.personRepository = personRepository;
   }
 
-  public DataFetcher<List<Person>> getPersons() {
-    return environment -> personRepository.getPersons().collectList().get();
+  public DataFetcher<CompletableFuture<List<Person>>> getPersons() {
+    return environment -> personRepository.getPersons(projection(environment.getSelectionSet()))
+        .collectList()
+        .toCompletableFuture();
   }
 
-  public DataFetcher<Person> getPersonById() {
-    return environment -> personRepository.getPersonById(Integer.parseInt(environment.getArgument("id").toString())).get();
+  /**
+   * @return person of the id, null if there is none
+   */
+  public DataFetcher<CompletableFuture<Person>> getPersonById() {
+    return environment -> personRepository.getPersonById(
+        Integer.parseInt(environment.getArgument("id").toString()),
+        projection(environment.getSelectionSet()))
+        // an empty Single completes the future with null instead of failing it
+        .toStage(true)
+        .toCompletableFuture();
   }
 
-  public DataFetcher<List<Person>> getPersonsByFirstName() {
+  public DataFetcher<CompletableFuture<List<Person>>> getPersonsByFirstName() {
     return environment -> personRepository.getPersonsByFirstName(
-        environment.getArgument("firstname")).collectList().get();
+        environment.getArgument("firstname"), projection(environment.getSelectionSet()))
+        .collectList()
+        .toCompletableFuture();
   }
 
-  public DataFetcher<Person> createPersonWithAddress() {
+  /**
+   * @param selectionSet selection of a person field
+   * @return columns of the selected fields of the persons and of their address
+   */
+  static PersonProjection projection(DataFetchingFieldSelectionSet selectionSet) {
+    return PersonProjection.of(names(selectionSet.getFields("*")),
+        names(selectionSet.getFields("address/*")));
+  }
+
+  private static Set<String> names(List<SelectedField> fields) {
+    return fields.stream().map(SelectedField::getName).collect(Collectors.toSet());
+  }
+
+  public DataFetcher<CompletableFuture<Person>> createPersonWithAddress() {
     return environment -> this.personRepository.createPerson(
         new Person(environment.getArgument("firstname"), environment.getArgument("lastname"),
             environment.getArgument("age"),
             new Address(environment.getArgument("street"), environment.getArgument("zipCode"),
                 environment.getArgument("city")),
-            Gender.valueOf(environment.getArgument("gender")))).get();
+            Gender.valueOf(environment.getArgument("gender")))).toCompletableFuture();
   }
 }
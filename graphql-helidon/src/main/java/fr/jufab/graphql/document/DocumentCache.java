@@ -0,0 +1,74 @@
+package fr.jufab.graphql.document;
+
+import fr.jufab.database.cache.BoundedCache;
+import graphql.ExecutionInput;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+import io.helidon.config.Config;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.function.Function;
+
+/**
+ * Parsed and validated documents of the queries, so an operation sent again is neither parsed nor
+ * validated again.
+ * <p>
+ * Documents are keyed by the SHA-256 of the query text, the hash of the persisted queries. Only
+ * valid documents are kept : a query with syntax or validation errors is checked on each request.
+ * A cache is bound to the schema it validated the documents against.
+ *
+ * @author jufab
+ * @version 1.0
+ */
+public class DocumentCache implements PreparsedDocumentProvider {
+  public static final String CACHE_NAME = "graphql-documents";
+
+  private final BoundedCache<String, PreparsedDocumentEntry> documents;
+
+  public DocumentCache(BoundedCache<String, PreparsedDocumentEntry> documents) {
+    this.documents = documents;
+  }
+
+  /**
+   * Cache configured by "enabled", "max-size" and "ttl-seconds".
+   *
+   * @param config "document-cache" config node
+   * @return document cache
+   */
+  public static DocumentCache create(Config config) {
+    return new DocumentCache(BoundedCache.create(CACHE_NAME, config));
+  }
+
+  @Override public PreparsedDocumentEntry getDocument(ExecutionInput executionInput,
+      Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidate) {
+    if (!documents.isEnabled()) {
+      return parseAndValidate.apply(executionInput);
+    }
+    String key = hash(executionInput.getQuery());
+    PreparsedDocumentEntry document = documents.get(key);
+    if (document == null) {
+      document = parseAndValidate.apply(executionInput);
+      if (!document.hasErrors()) {
+        documents.put(key, document);
+      }
+    }
+    return document;
+  }
+
+  /**
+   * @param query query text
+   * @return SHA-256 of the UTF-8 query, in lower case hexadecimal
+   */
+  public static String hash(String query) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256")
+          .digest(query.getBytes(StandardCharsets.UTF_8));
+      return String.format("%064x", new BigInteger(1, digest));
+    } catch (NoSuchAlgorithmException e) {
+      // every Java platform has SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+}
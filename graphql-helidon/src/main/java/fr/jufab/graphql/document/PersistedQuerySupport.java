@@ -0,0 +1,202 @@
+package fr.jufab.graphql.document;
+
+import fr.jufab.database.cache.BoundedCache;
+import fr.jufab.graphql.GraphQlInvocationHandler;
+import io.helidon.common.GenericType;
+import io.helidon.common.http.Http;
+import io.helidon.common.http.MediaType;
+import io.helidon.config.Config;
+import io.helidon.media.jsonb.JsonbSupport;
+import io.helidon.webserver.Routing;
+import io.helidon.webserver.ServerRequest;
+import io.helidon.webserver.ServerResponse;
+import io.helidon.webserver.Service;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.json.bind.Jsonb;
+import javax.json.bind.JsonbBuilder;
+import javax.json.bind.JsonbException;
+
+/**
+ * Automatic persisted queries : a client sends the SHA-256 of a query in the
+ * {@code extensions.persistedQuery.sha256Hash} of its request instead of the query.
+ * <p>
+ * An unknown hash is answered with a {@value #NOT_FOUND} error, the client then sends the query
+ * with its hash and the query is kept for the next requests. Requests with a hash are read as GET
+ * with an "extensions" parameter or as POST. This service is registered before
+ * {@link io.helidon.graphql.server.GraphQlSupport} and answers every POST on its context, the
+ * body of a request cannot be read twice. Other GET requests go to the next handler. Variables or
+ * extensions that are not JSON objects, a query or an operation name that is not a string are
+ * answered with a 400 and a GraphQL error.
+ *
+ * @author jufab
+ * @version 1.0
+ */
+public class PersistedQuerySupport implements Service {
+  public static final String CACHE_NAME = "graphql-persisted-queries";
+  public static final String NOT_FOUND = "PersistedQueryNotFound";
+  public static final String NOT_SUPPORTED = "PersistedQueryNotSupported";
+  public static final String HASH_MISMATCH = "provided sha does not match query";
+  public static final String NOT_A_STRING = "query and operationName must be strings";
+  static final String DEFAULT_CONTEXT = "/graphql";
+  static final Logger LOGGER = Logger.getLogger(PersistedQuerySupport.class.getName());
+  private static final Jsonb JSONB = JsonbBuilder.create();
+
+  private final String context;
+  private final GraphQlInvocationHandler invocationHandler;
+  private final BoundedCache<String, String> queries;
+  private final ExecutorService executor;
+
+  /**
+   * @param context web context of the GraphQL endpoint
+   * @param invocationHandler handler of the GraphQL endpoint
+   * @param queries queries by hash
+   * @param executor executor starting the GraphQL requests, it does not wait for their queries
+   */
+  public PersistedQuerySupport(String context, GraphQlInvocationHandler invocationHandler,
+      BoundedCache<String, String> queries, ExecutorService executor) {
+    this.context = context;
+    this.invocationHandler = invocationHandler;
+    this.queries = queries;
+    this.executor = executor;
+  }
+
+  /**
+   * Persisted queries kept in a cache configured by "max-size" and "ttl-seconds", on the
+   * "/graphql" context.
+   *
+   * @param config "persisted-queries" config node
+   * @param invocationHandler handler of the GraphQL endpoint
+   * @param executor executor of the GraphQL requests
+   * @return persisted query support
+   */
+  public static PersistedQuerySupport create(Config config,
+      GraphQlInvocationHandler invocationHandler, ExecutorService executor) {
+    return new PersistedQuerySupport(DEFAULT_CONTEXT, invocationHandler,
+        BoundedCache.create(CACHE_NAME, config), executor);
+  }
+
+  @Override public void update(Routing.Rules rules) {
+    rules.get(context, this::graphQlGet)
+        .post(context, this::graphQlPost);
+  }
+
+  private void graphQlGet(ServerRequest request, ServerResponse response) {
+    Optional<String> extensions = request.queryParams().first("extensions");
+    if (extensions.isEmpty()) {
+      request.next();
+      return;
+    }
+    try {
+      processRequest(response, request.queryParams().first("query").orElse(null),
+          request.queryParams().first("operationName").orElse(null),
+          toMap(request.queryParams().first("variables").orElse(null)),
+          toMap(extensions.get()));
+    } catch (JsonbException e) {
+      badRequest(response, invalidJson(e));
+    }
+  }
+
+  private void graphQlPost(ServerRequest request, ServerResponse response) {
+    JsonbSupport.reader()
+        .read(request.content(), GenericType.create(LinkedHashMap.class),
+            request.content().readerContext())
+        .forSingle(body -> {
+          Object query = body.get("query");
+          Object operationName = body.get("operationName");
+          if (!isString(query) || !isString(operationName)) {
+            badRequest(response, NOT_A_STRING);
+            return;
+          }
+          try {
+            processRequest(response, (String) query, (String) operationName,
+                toMap(body.get("variables")), toMap(body.get("extensions")));
+          } catch (JsonbException e) {
+            badRequest(response, invalidJson(e));
+          }
+        })
+        .exceptionallyAccept(response::send);
+  }
+
+  private void processRequest(ServerResponse response, String query, String operationName,
+      Map<String, Object> variables, Map<String, Object> extensions) {
+    Map<String, Object> persistedQuery = toMap(extensions.get("persistedQuery"));
+    if (!persistedQuery.isEmpty()) {
+      Object version = persistedQuery.get("version");
+      if (!(version instanceof Number) || ((Number) version).intValue() != 1) {
+        send(response, error(NOT_SUPPORTED, "PERSISTED_QUERY_NOT_SUPPORTED"));
+        return;
+      }
+      String hash = String.valueOf(persistedQuery.get("sha256Hash"));
+      if (query == null) {
+        query = queries.get(hash);
+        if (query == null) {
+          send(response, error(NOT_FOUND, "PERSISTED_QUERY_NOT_FOUND"));
+          return;
+        }
+      } else if (hash.equals(DocumentCache.hash(query))) {
+        queries.put(hash, query);
+      } else {
+        badRequest(response, HASH_MISMATCH);
+        return;
+      }
+    }
+    if (query == null) {
+      badRequest(response, "Query must be defined");
+      return;
+    }
+    String executedQuery = query;
+    executor.submit(() -> {
+      try {
+        invocationHandler.executeAsync(executedQuery, operationName, variables)
+            .thenAccept(result -> send(response, result));
+      } catch (RuntimeException e) {
+        LOGGER.log(Level.WARNING, "Unexpected exception when executing graphQL request", e);
+        response.send(e);
+      }
+    });
+  }
+
+  private static Map<String, Object> error(String message, String code) {
+    return Map.of("errors", List.of(Map.of("message", message,
+        "extensions", Map.of("code", code))));
+  }
+
+  private static void badRequest(ServerResponse response, String message) {
+    response.status(Http.Status.BAD_REQUEST_400);
+    send(response, error(message, "BAD_REQUEST"));
+  }
+
+  private static boolean isString(Object value) {
+    return value == null || value instanceof String;
+  }
+
+  private static String invalidJson(JsonbException e) {
+    return "Invalid JSON in the request : " + e.getMessage();
+  }
+
+  private static void send(ServerResponse response, Map<String, Object> body) {
+    response.headers().contentType(MediaType.APPLICATION_JSON);
+    response.send(JsonbSupport.writer().marshall(body));
+  }
+
+  /**
+   * @throws JsonbException if the value is not a JSON object, answered as a bad request
+   */
+  @SuppressWarnings("unchecked")
+  private static Map<String, Object> toMap(Object value) {
+    if (value == null) {
+      return Map.of();
+    }
+    if (value instanceof Map) {
+      return (Map<String, Object>) value;
+    }
+    String json = value.toString().trim();
+    return json.isEmpty() ? Map.of() : JSONB.fromJson(json, LinkedHashMap.class);
+  }
+}
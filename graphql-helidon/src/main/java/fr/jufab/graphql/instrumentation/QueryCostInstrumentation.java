@@ -0,0 +1,188 @@
+package fr.jufab.graphql.instrumentation;
+
+import graphql.ExecutionResult;
+import graphql.analysis.QueryTraverser;
+import graphql.analysis.QueryVisitorFieldEnvironment;
+import graphql.analysis.QueryVisitorStub;
+import graphql.execution.AbortExecutionException;
+import graphql.execution.ExecutionContext;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.SimpleInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import graphql.schema.GraphQLTypeUtil;
+import io.helidon.config.Config;
+import io.helidon.metrics.RegistryFactory;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Histogram;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.Tag;
+
+/**
+ * Depth and cost of each operation, computed before its execution. An operation deeper than
+ * {@code maxDepth} or costing more than {@code maxCost} is rejected without reading anything.
+ * <p>
+ * The cost of a field is its weight, 1 by default, plus the cost of its selection. The selection
+ * of a list field is counted once for each of its estimated items, {@code defaultListSize} when
+ * the field has no estimate. Introspection fields cost nothing. Operations are measured when they
+ * are executed, not when validated : validation is skipped for the documents found in the
+ * {@link fr.jufab.graphql.document.DocumentCache}.
+ * <p>
+ * Application metrics : histograms {@code graphql.operation.cost} and
+ * {@code graphql.operation.depth}, counter {@code graphql.operation.rejected} tagged with the
+ * exceeded limit.
+ *
+ * @author jufab
+ * @version 1.0
+ */
+public class QueryCostInstrumentation extends SimpleInstrumentation {
+  static final String COST = "graphql.operation.cost";
+  static final String DEPTH = "graphql.operation.depth";
+  static final String REJECTED = "graphql.operation.rejected";
+  public static final int DEFAULT_MAX_DEPTH = 8;
+  public static final long DEFAULT_MAX_COST = 2000;
+  public static final int DEFAULT_LIST_SIZE = 10;
+
+  private final int maxDepth;
+  private final long maxCost;
+  private final int defaultListSize;
+  private final Map<String, Integer> weights;
+  private final Map<String, Integer> listSizes;
+  final Histogram cost;
+  final Histogram depth;
+  final Counter depthRejected;
+  final Counter costRejected;
+
+  /**
+   * @param registry registry of the metrics
+   * @param maxDepth max depth of an operation, its root fields are at depth 1
+   * @param maxCost max cost of an operation
+   * @param defaultListSize estimated items of a list field without estimate
+   * @param weights weight of the fields by "Type.field", 1 if absent
+   * @param listSizes estimated items of the list fields by "Type.field"
+   */
+  QueryCostInstrumentation(MetricRegistry registry, int maxDepth, long maxCost,
+      int defaultListSize, Map<String, Integer> weights, Map<String, Integer> listSizes) {
+    this.maxDepth = maxDepth;
+    this.maxCost = maxCost;
+    this.defaultListSize = defaultListSize;
+    this.weights = Map.copyOf(weights);
+    this.listSizes = Map.copyOf(listSizes);
+    this.cost = histogram(registry, COST, "Estimated cost of the GraphQL operations");
+    this.depth = histogram(registry, DEPTH, "Depth of the GraphQL operations");
+    this.depthRejected = rejected(registry, "depth");
+    this.costRejected = rejected(registry, "cost");
+  }
+
+  /**
+   * Instrumentation configured by "max-depth", "max-cost", "default-list-size" and the "weights"
+   * and "list-sizes" of the fields, by type then field name.
+   *
+   * @param config "query-limits" config node
+   * @return instrumentation
+   */
+  public static QueryCostInstrumentation create(Config config) {
+    return new QueryCostInstrumentation(
+        RegistryFactory.getInstance().getRegistry(MetricRegistry.Type.APPLICATION),
+        config.get("max-depth").asInt().orElse(DEFAULT_MAX_DEPTH),
+        config.get("max-cost").asLong().orElse(DEFAULT_MAX_COST),
+        config.get("default-list-size").asInt().orElse(DEFAULT_LIST_SIZE),
+        byField(config.get("weights")), byField(config.get("list-sizes")));
+  }
+
+  private static Map<String, Integer> byField(Config config) {
+    Map<String, Integer> byField = new HashMap<>();
+    config.asNodeList().orElse(List.of()).forEach(type ->
+        type.asNodeList().orElse(List.of()).forEach(field ->
+            byField.put(type.name() + "." + field.name(), field.asInt().get())));
+    return byField;
+  }
+
+  private static Histogram histogram(MetricRegistry registry, String name, String description) {
+    return registry.histogram(Metadata.builder()
+        .withName(name)
+        .withDescription(description)
+        .withType(MetricType.HISTOGRAM)
+        .build());
+  }
+
+  private static Counter rejected(MetricRegistry registry, String limit) {
+    return registry.counter(Metadata.builder()
+            .withName(REJECTED)
+            .withDescription("GraphQL operations rejected over a limit")
+            .withType(MetricType.COUNTER)
+            .build(),
+        new Tag("limit", limit));
+  }
+
+  @Override public InstrumentationContext<ExecutionResult> beginExecuteOperation(
+      InstrumentationExecuteOperationParameters parameters) {
+    ExecutionContext executionContext = parameters.getExecutionContext();
+    Map<QueryVisitorFieldEnvironment, Long> selectionCosts = new HashMap<>();
+    int[] operationDepth = {0};
+    QueryTraverser.newQueryTraverser()
+        .schema(executionContext.getGraphQLSchema())
+        .document(executionContext.getDocument())
+        .operationName(executionContext.getOperationDefinition().getName())
+        .variables(executionContext.getVariables())
+        .build()
+        .visitPostOrder(new QueryVisitorStub() {
+          @Override public void visitField(QueryVisitorFieldEnvironment environment) {
+            if (isIntrospection(environment)) {
+              return;
+            }
+            operationDepth[0] = Math.max(operationDepth[0], depth(environment));
+            long fieldCost = cost(environment, selectionCosts.getOrDefault(environment, 0L));
+            selectionCosts.merge(environment.getParentEnvironment(), fieldCost, Long::sum);
+          }
+        });
+    long operationCost = selectionCosts.getOrDefault(null, 0L);
+    cost.update(operationCost);
+    depth.update(operationDepth[0]);
+    if (operationDepth[0] > maxDepth) {
+      depthRejected.inc();
+      throw new AbortExecutionException(
+          "maximum query depth exceeded " + operationDepth[0] + " > " + maxDepth);
+    }
+    if (operationCost > maxCost) {
+      costRejected.inc();
+      throw new AbortExecutionException(
+          "maximum query cost exceeded " + operationCost + " > " + maxCost);
+    }
+    return super.beginExecuteOperation(parameters);
+  }
+
+  private long cost(QueryVisitorFieldEnvironment environment, long selectionCost) {
+    String field = environment.getFieldsContainer().getName() + "."
+        + environment.getFieldDefinition().getName();
+    long fieldCost = weights.getOrDefault(field, 1);
+    if (GraphQLTypeUtil.isList(
+        GraphQLTypeUtil.unwrapNonNull(environment.getFieldDefinition().getType()))) {
+      return fieldCost + listSizes.getOrDefault(field, defaultListSize) * selectionCost;
+    }
+    return fieldCost + selectionCost;
+  }
+
+  private static int depth(QueryVisitorFieldEnvironment environment) {
+    int depth = 0;
+    for (QueryVisitorFieldEnvironment field = environment; field != null;
+        field = field.getParentEnvironment()) {
+      depth++;
+    }
+    return depth;
+  }
+
+  private static boolean isIntrospection(QueryVisitorFieldEnvironment environment) {
+    for (QueryVisitorFieldEnvironment field = environment; field != null;
+        field = field.getParentEnvironment()) {
+      if (field.getFieldDefinition().getName().startsWith("__")) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,94 @@
+package fr.jufab.graphql;
+
+import fr.jufab.database.dto.Gender;
+import fr.jufab.database.dto.Person;
+import fr.jufab.database.repositories.AddressRepository;
+import fr.jufab.database.repositories.PersonRepository;
+import fr.jufab.graphql.datafetcher.AddressDataFetcher;
+import fr.jufab.graphql.datafetcher.PersonDataFetcher;
+import io.helidon.common.reactive.Single;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Requests of sibling personById fields on a single request thread, the queries are answered by
+ * the test only once every one of them is sent.
+ */
+class DataFetcherConcurrencyTest {
+  static final String QUERY = "{ a: personById(id: 1) { firstname } "
+      + "b: personById(id: 2) { firstname } "
+      + "c: personById(id: 3) { firstname } "
+      + "d: personById(id: 4) { firstname } }";
+
+  ExecutorService requestThread;
+  Map<Integer, List<CompletableFuture<Person>>> queries;
+  GraphQlInvocationHandler handler;
+
+  @BeforeEach
+  void initTest() {
+    requestThread = Executors.newSingleThreadExecutor();
+    queries = new ConcurrentHashMap<>();
+    PersonRepository personRepository = mock(PersonRepository.class);
+    // a query pending until the test completes it
+    when(personRepository.getPersonById(anyInt(), any())).thenAnswer(invocation -> {
+      CompletableFuture<Person> query = new CompletableFuture<>();
+      queries.computeIfAbsent(invocation.getArgument(0), id -> new CopyOnWriteArrayList<>())
+          .add(query);
+      return Single.create(query);
+    });
+    AddressDataFetcher addressDataFetcher =
+        new AddressDataFetcher(mock(AddressRepository.class));
+    handler = new GraphQlInvocationHandler(
+        Main.buildSchema(Main.buildRuntimeWiring(new PersonDataFetcher(personRepository),
+            addressDataFetcher)),
+        () -> Main.buildDataLoaderRegistry(addressDataFetcher));
+  }
+
+  @AfterEach
+  void shutdown() {
+    requestThread.shutdownNow();
+  }
+
+  @Test
+  void shouldSendTheQueriesOfSeveralRequestsOnOneThreadBeforeAnyAnswer() throws Exception {
+    CompletionStage<Map<String, Object>> first = requestThread
+        .submit(() -> handler.executeAsync(QUERY, null, Map.of()))
+        .get(10, TimeUnit.SECONDS);
+    CompletionStage<Map<String, Object>> second = requestThread
+        .submit(() -> handler.executeAsync(QUERY, null, Map.of()))
+        .get(10, TimeUnit.SECONDS);
+
+    // the 4 sibling fields of both requests wait for the database together
+    assertThat(queries).containsOnlyKeys(1, 2, 3, 4)
+        .allSatisfy((id, pending) -> assertThat(pending).hasSize(2));
+    assertThat(first.toCompletableFuture()).isNotDone();
+    assertThat(second.toCompletableFuture()).isNotDone();
+
+    queries.forEach((id, pending) -> pending.forEach(query -> query.complete(
+        Person.builder().id(id).firstname("firstname" + id).lastname("lastname")
+            .gender(Gender.WOMAN).build())));
+
+    for (CompletionStage<Map<String, Object>> result : List.of(first, second)) {
+      assertThat(result.toCompletableFuture().get(10, TimeUnit.SECONDS))
+          .doesNotContainKey("errors")
+          .extractingByKey("data").asString()
+          .contains("firstname1", "firstname2", "firstname3", "firstname4");
+    }
+  }
+}
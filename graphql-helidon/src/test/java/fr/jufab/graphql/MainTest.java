@@ -165,6 +165,27 @@ public class MainTest {
 
   @Test
   @Order(12)
+  public void shouldReturnNullForAnUnknownPersonIdGraphQL() throws Exception {
+    InputStream iStream = Main.class.getClassLoader().getResourceAsStream(
+        "requests/getPersonById.graphql");
+    ObjectNode variables = new ObjectMapper().createObjectNode();
+    variables.put("id", 999);
+    String graphqlPayload = GraphqlTemplate.parseGraphql(iStream, variables);
+    webClient.post()
+        .path("/graphql")
+        .accept(MediaType.APPLICATION_JSON)
+        .submit(graphqlPayload)
+        .thenCompose(webClientResponse -> webClientResponse.content().as(JsonObject.class))
+        .thenAccept(content -> {
+          assertThat(content).doesNotContainKey("errors");
+          assertThat(content.getJsonObject("data").isNull("personById")).isTrue();
+        })
+        .toCompletableFuture()
+        .get();
+  }
+
+  @Test
+  @Order(13)
   public void shouldReturnPersonByFirstNameGraphQL() throws Exception {
     InputStream iStream = Main.class.getClassLoader().getResourceAsStream(
         "requests/getPersonsByFirstName.graphql");
@@ -1,9 +1,18 @@
 package fr.jufab.graphql.datafetcher;
 
 import fr.jufab.database.dto.Address;
+import fr.jufab.database.dto.Person;
 import fr.jufab.database.repositories.AddressRepository;
 import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.DataFetchingFieldSelectionSet;
+import graphql.schema.SelectedField;
 import io.helidon.common.reactive.Single;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import org.dataloader.DataLoader;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -13,7 +22,10 @@ import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,6 +39,8 @@ class AddressDataFetcherTest {
   AddressRepository addressRepository;
   @Spy
   DataFetchingEnvironment environment;
+  @Mock
+  DataFetchingFieldSelectionSet selectionSet;
   @InjectMocks
   AddressDataFetcher addressDataFetcher;
 
@@ -41,10 +55,60 @@ class AddressDataFetcherTest {
   void shouldReturnAnAddress() throws Exception {
     when(environment.getArgument("id")).thenReturn(ID);
     when(addressRepository.getAddressById(anyInt())).thenReturn(Single.just(address));
-    Address addressResult = addressDataFetcher.getAddressById().get(environment);
+    Address addressResult = addressDataFetcher.getAddressById().get(environment).get();
     assertThat(addressResult).isNotNull()
         .hasFieldOrPropertyWithValue("city", CITY)
         .hasFieldOrPropertyWithValue("street", STREET)
         .hasFieldOrPropertyWithValue("zipCode", ZIP_CODE);
   }
-}
\ No newline at end of file
+
+  @Test
+  void shouldLoadTheAddressesOfThePersonsWithOneQuery() throws Exception {
+    Address otherAddress = Address.builder().id(2).street(STREET).zipCode(ZIP_CODE).city(CITY)
+        .build();
+    when(addressRepository.getAddressesByIds(Set.of(ID, 2)))
+        .thenReturn(Single.just(Map.of(ID, address, 2, otherAddress)));
+    DataLoader<Integer, Address> addressLoader =
+        DataLoader.newMappedDataLoader(addressDataFetcher.addressBatchLoader());
+    when(environment.getDataLoader(AddressDataFetcher.ADDRESS_LOADER))
+        .thenReturn((DataLoader) addressLoader);
+    selectAddressFields("id", "city");
+
+    List<CompletableFuture<Address>> addresses = new ArrayList<>();
+    for (int addressId : new int[] {ID, 2, ID}) {
+      when(environment.getSource()).thenReturn(
+          Person.builder().address(Address.builder().id(addressId).build()).build());
+      addresses.add(addressDataFetcher.getAddressById().get(environment));
+    }
+    addressLoader.dispatchAndJoin();
+
+    assertThat(addresses).extracting(CompletableFuture::get)
+        .containsExactly(address, otherAddress, address);
+    verify(addressRepository).getAddressesByIds(anyCollection());
+  }
+
+  @Test
+  void shouldNotLoadAnAddressReadWithThePerson() throws Exception {
+    when(environment.getSource()).thenReturn(Person.builder().address(address).build());
+    selectAddressFields("street", "city");
+
+    assertThat(addressDataFetcher.getAddressById().get(environment).get()).isSameAs(address);
+    verifyNoInteractions(addressRepository);
+  }
+
+  @Test
+  void shouldNotLoadAnAddressWhenOnlyItsIdIsSelected() throws Exception {
+    Address addressId = Address.builder().id(ID).build();
+    when(environment.getSource()).thenReturn(Person.builder().address(addressId).build());
+    selectAddressFields("id");
+
+    assertThat(addressDataFetcher.getAddressById().get(environment).get()).isSameAs(addressId);
+    verifyNoInteractions(addressRepository);
+  }
+
+  private void selectAddressFields(String... names) {
+    List<SelectedField> fields = PersonDataFetcherTest.fields(List.of(names));
+    when(environment.getSelectionSet()).thenReturn(selectionSet);
+    when(selectionSet.getFields("*")).thenReturn(fields);
+  }
+}
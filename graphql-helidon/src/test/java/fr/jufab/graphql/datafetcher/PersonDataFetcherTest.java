@@ -3,9 +3,17 @@ package fr.jufab.graphql.datafetcher;
 import fr.jufab.database.dto.Address;
 import fr.jufab.database.dto.Gender;
 import fr.jufab.database.dto.Person;
+import fr.jufab.database.repositories.PersonProjection;
 import fr.jufab.database.repositories.PersonRepository;
 import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.DataFetchingFieldSelectionSet;
+import graphql.schema.SelectedField;
+import io.helidon.common.reactive.Multi;
 import io.helidon.common.reactive.Single;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -15,6 +23,7 @@ import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -26,13 +35,14 @@ class PersonDataFetcherTest {
   public static final int AGE = 30;
   @Mock PersonRepository personRepository;
   @Spy DataFetchingEnvironment environment;
+  @Mock DataFetchingFieldSelectionSet selectionSet;
   @InjectMocks PersonDataFetcher personDataFetcher;
 
   Person person;
 
   @BeforeEach
   void initTest() {
-    Address address = Address.builder().build();
+    Address address = Address.builder().id(ID).build();
     person = Person.builder()
         .id(ID)
         .firstname(FIRSTNAME)
@@ -45,13 +55,81 @@ class PersonDataFetcherTest {
 
   @Test
   void shouldReturnPersonFromPersonDataFetcher() throws Exception {
+    select(List.of("firstname", "lastname", "age", "gender"), List.of());
     when(environment.getArgument("id")).thenReturn(ID);
-    when(personRepository.getPersonById(ID)).thenReturn(Single.just(person));
-    Person personResult = personDataFetcher.getPersonById().get(environment);
+    when(personRepository.getPersonById(ID,
+        PersonProjection.of(Set.of("firstname", "lastname", "age", "gender"), Set.of())))
+        .thenReturn(Single.just(person));
+    Person personResult = personDataFetcher.getPersonById().get(environment).get();
     assertThat(personResult).isNotNull()
         .hasFieldOrPropertyWithValue("firstname", FIRSTNAME)
         .hasFieldOrPropertyWithValue("lastname", LASTNAME)
         .hasFieldOrPropertyWithValue("age", AGE)
         .hasFieldOrPropertyWithValue("gender", Gender.MAN);
   }
-}
\ No newline at end of file
+
+  @Test
+  void shouldReturnTheFutureOfThePersonWithoutWaitingForTheQuery() throws Exception {
+    select(List.of("firstname"), List.of());
+    when(environment.getArgument("id")).thenReturn(ID);
+    CompletableFuture<Person> query = new CompletableFuture<>();
+    when(personRepository.getPersonById(ID, PersonProjection.of(Set.of("firstname"), Set.of())))
+        .thenReturn(Single.create(query));
+
+    CompletableFuture<Person> personResult = personDataFetcher.getPersonById().get(environment);
+    assertThat(personResult).isNotDone();
+    query.complete(person);
+
+    assertThat(personResult).isCompletedWithValue(person);
+  }
+
+  @Test
+  void shouldReturnNullForAnUnknownId() throws Exception {
+    select(List.of("firstname"), List.of());
+    when(environment.getArgument("id")).thenReturn(ID);
+    when(personRepository.getPersonById(ID, PersonProjection.of(Set.of("firstname"), Set.of())))
+        .thenReturn(Single.empty());
+    assertThat(personDataFetcher.getPersonById().get(environment).get()).isNull();
+  }
+
+  @Test
+  void shouldReturnPersonsWithoutReadingTheirAddresses() throws Exception {
+    select(List.of("id", "firstname"), List.of());
+    when(personRepository.getPersons(PersonProjection.of(Set.of("firstname"), Set.of())))
+        .thenReturn(Multi.just(person));
+    List<Person> persons = personDataFetcher.getPersons().get(environment).get();
+    assertThat(persons).containsExactly(person);
+  }
+
+  @Test
+  void shouldReadTheSelectedAddressFieldsWithThePersons() throws Exception {
+    select(List.of("lastname", "address"), List.of("id", "city"));
+    when(environment.getArgument("firstname")).thenReturn(FIRSTNAME);
+    PersonProjection projection = PersonProjection.of(Set.of("lastname"), Set.of("city"));
+    when(personRepository.getPersonsByFirstName(FIRSTNAME, projection))
+        .thenReturn(Multi.just(person));
+
+    assertThat(personDataFetcher.getPersonsByFirstName().get(environment).get())
+        .containsExactly(person);
+    assertThat(projection.isWithAddress()).isTrue();
+    assertThat(projection.columnNames())
+        .containsExactly("ID", "ADDRESS_ID", "LASTNAME", "CITY");
+  }
+
+  private void select(List<String> personFields, List<String> addressFields) {
+    // fields mocked before the stubbing of the selection set
+    List<SelectedField> selectedPersonFields = fields(personFields);
+    List<SelectedField> selectedAddressFields = fields(addressFields);
+    when(environment.getSelectionSet()).thenReturn(selectionSet);
+    when(selectionSet.getFields("*")).thenReturn(selectedPersonFields);
+    when(selectionSet.getFields("address/*")).thenReturn(selectedAddressFields);
+  }
+
+  static List<SelectedField> fields(List<String> names) {
+    return names.stream().map(name -> {
+      SelectedField field = mock(SelectedField.class);
+      when(field.getName()).thenReturn(name);
+      return field;
+    }).collect(Collectors.toList());
+  }
+}
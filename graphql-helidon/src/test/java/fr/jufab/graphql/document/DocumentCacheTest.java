@@ -0,0 +1,74 @@
+package fr.jufab.graphql.document;
+
+import fr.jufab.database.cache.BoundedCache;
+import graphql.ExecutionInput;
+import graphql.InvalidSyntaxError;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.language.SourceLocation;
+import graphql.parser.Parser;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DocumentCacheTest {
+  static final String QUERY = "{ persons { id firstname } }";
+
+  AtomicInteger parses;
+  Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidate;
+
+  @BeforeEach
+  void initTest() {
+    parses = new AtomicInteger();
+    parseAndValidate = input -> {
+      parses.incrementAndGet();
+      return input.getQuery().startsWith("{")
+          ? new PreparsedDocumentEntry(new Parser().parseDocument(input.getQuery()))
+          : new PreparsedDocumentEntry(
+              new InvalidSyntaxError(new SourceLocation(1, 1), "Invalid syntax"));
+    };
+  }
+
+  @Test
+  void shouldParseAQuerySentAgainOnce() {
+    DocumentCache documentCache =
+        new DocumentCache(new BoundedCache<>("documents-test", 10, 1, TimeUnit.MINUTES));
+
+    PreparsedDocumentEntry first = documentCache.getDocument(input(QUERY), parseAndValidate);
+    PreparsedDocumentEntry second = documentCache.getDocument(input(QUERY), parseAndValidate);
+    documentCache.getDocument(input("{ persons { id } }"), parseAndValidate);
+
+    assertThat(second).isSameAs(first);
+    assertThat(parses).hasValue(2);
+  }
+
+  @Test
+  void shouldNotKeepAnInvalidQuery() {
+    DocumentCache documentCache =
+        new DocumentCache(new BoundedCache<>("documents-test", 10, 1, TimeUnit.MINUTES));
+
+    documentCache.getDocument(input("persons"), parseAndValidate);
+    PreparsedDocumentEntry entry = documentCache.getDocument(input("persons"), parseAndValidate);
+
+    assertThat(entry.hasErrors()).isTrue();
+    assertThat(parses).hasValue(2);
+  }
+
+  @Test
+  void shouldHashTheQueryAsThePersistedQueryClients() {
+    assertThat(DocumentCache.hash("{ persons { id } }"))
+        .hasSize(64)
+        .isEqualTo(DocumentCache.hash("{ persons { id } }"))
+        .isNotEqualTo(DocumentCache.hash("{ persons { id firstname } }"));
+    // SHA-256 of the empty string
+    assertThat(DocumentCache.hash(""))
+        .isEqualTo("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855");
+  }
+
+  private static ExecutionInput input(String query) {
+    return ExecutionInput.newExecutionInput().query(query).build();
+  }
+}
@@ -0,0 +1,179 @@
+package fr.jufab.graphql.document;
+
+import fr.jufab.database.cache.BoundedCache;
+import fr.jufab.graphql.GraphQlInvocationHandler;
+import io.helidon.common.http.Http;
+import io.helidon.common.http.MediaType;
+import io.helidon.media.jsonp.JsonpSupport;
+import io.helidon.webclient.WebClient;
+import io.helidon.webclient.WebClientResponse;
+import io.helidon.webserver.Routing;
+import io.helidon.webserver.WebServer;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class PersistedQuerySupportTest {
+  static final String QUERY = "{ persons { id } }";
+
+  GraphQlInvocationHandler invocationHandler;
+  ExecutorService executor;
+  WebServer webServer;
+  WebClient webClient;
+
+  @BeforeEach
+  void startTheServer() throws Exception {
+    invocationHandler = mock(GraphQlInvocationHandler.class);
+    when(invocationHandler.executeAsync(eq(QUERY), isNull(), anyMap()))
+        .thenReturn(CompletableFuture.completedFuture(
+            Map.of("data", Map.of("persons", Map.of("id", "1")))));
+    executor = Executors.newSingleThreadExecutor();
+    webServer = WebServer.builder()
+        .routing(Routing.builder()
+            .register(new PersistedQuerySupport("/graphql", invocationHandler,
+                new BoundedCache<>("persisted-queries-test", 10, 1, TimeUnit.MINUTES), executor))
+            .build())
+        .port(0)
+        .build()
+        .start()
+        .get(10, TimeUnit.SECONDS);
+    webClient = WebClient.builder()
+        .baseUri("http://localhost:" + webServer.port())
+        .addMediaSupport(JsonpSupport.create())
+        .build();
+  }
+
+  @AfterEach
+  void stopServer() throws Exception {
+    webServer.shutdown().get(10, TimeUnit.SECONDS);
+    executor.shutdownNow();
+  }
+
+  @Test
+  void shouldAskForTheQueryOfAnUnknownHashThenExecuteItFromItsHash() throws Exception {
+    String hash = DocumentCache.hash(QUERY);
+
+    JsonObject notFound = post(request(null, hash));
+    assertThat(notFound.getJsonArray("errors").getJsonObject(0).getString("message"))
+        .isEqualTo(PersistedQuerySupport.NOT_FOUND);
+    verifyNoInteractions(invocationHandler);
+
+    assertThat(post(request(QUERY, hash)).getJsonObject("data")).containsKey("persons");
+    assertThat(post(request(null, hash)).getJsonObject("data")).containsKey("persons");
+    verify(invocationHandler, times(2)).executeAsync(eq(QUERY), isNull(), anyMap());
+  }
+
+  @Test
+  void shouldRejectAQueryNotMatchingItsHash() throws Exception {
+    WebClientResponse response = webClient.post()
+        .path("/graphql")
+        .accept(MediaType.APPLICATION_JSON)
+        .submit(request(QUERY, DocumentCache.hash("{ persons { firstname } }")))
+        .get(10, TimeUnit.SECONDS);
+
+    assertThat(response.status()).isEqualTo(Http.Status.BAD_REQUEST_400);
+    verifyNoInteractions(invocationHandler);
+  }
+
+  @Test
+  void shouldRejectMalformedExtensionsOfAGet() throws Exception {
+    WebClientResponse response = webClient.get()
+        .path("/graphql")
+        .queryParam("extensions", "{\"persistedQuery\":")
+        .accept(MediaType.APPLICATION_JSON)
+        .request()
+        .get(10, TimeUnit.SECONDS);
+
+    assertBadRequest(response);
+  }
+
+  @Test
+  void shouldRejectMalformedExtensionsOfAPost() throws Exception {
+    WebClientResponse response = webClient.post()
+        .path("/graphql")
+        .accept(MediaType.APPLICATION_JSON)
+        .submit(Json.createObjectBuilder()
+            .add("query", QUERY)
+            .add("extensions", "{\"persistedQuery\":")
+            .build())
+        .get(10, TimeUnit.SECONDS);
+
+    assertBadRequest(response);
+  }
+
+  @Test
+  void shouldRejectAQueryThatIsNotAString() throws Exception {
+    WebClientResponse response = webClient.post()
+        .path("/graphql")
+        .accept(MediaType.APPLICATION_JSON)
+        .submit(Json.createObjectBuilder().add("query", 1).build())
+        .get(10, TimeUnit.SECONDS);
+
+    assertBadRequest(response, PersistedQuerySupport.NOT_A_STRING);
+  }
+
+  @Test
+  void shouldRejectAnOperationNameThatIsNotAString() throws Exception {
+    WebClientResponse response = webClient.post()
+        .path("/graphql")
+        .accept(MediaType.APPLICATION_JSON)
+        .submit(Json.createObjectBuilder()
+            .add("query", QUERY)
+            .add("operationName", Json.createArrayBuilder().add("persons"))
+            .build())
+        .get(10, TimeUnit.SECONDS);
+
+    assertBadRequest(response, PersistedQuerySupport.NOT_A_STRING);
+  }
+
+  private void assertBadRequest(WebClientResponse response) throws Exception {
+    assertBadRequest(response, "Invalid JSON");
+  }
+
+  private void assertBadRequest(WebClientResponse response, String message) throws Exception {
+    assertThat(response.status()).isEqualTo(Http.Status.BAD_REQUEST_400);
+    JsonObject error = response.content().as(JsonObject.class).get(10, TimeUnit.SECONDS)
+        .getJsonArray("errors").getJsonObject(0);
+    assertThat(error.getString("message")).startsWith(message);
+    assertThat(error.getJsonObject("extensions").getString("code")).isEqualTo("BAD_REQUEST");
+    verifyNoInteractions(invocationHandler);
+  }
+
+  private JsonObject post(JsonObject request) throws Exception {
+    return webClient.post()
+        .path("/graphql")
+        .accept(MediaType.APPLICATION_JSON)
+        .submit(request, JsonObject.class)
+        .get(10, TimeUnit.SECONDS);
+  }
+
+  private static JsonObject request(String query, String hash) {
+    JsonObjectBuilder request = Json.createObjectBuilder()
+        .add("extensions", Json.createObjectBuilder()
+            .add("persistedQuery", Json.createObjectBuilder()
+                .add("version", 1)
+                .add("sha256Hash", hash)));
+    if (query != null) {
+      request.add("query", query);
+    }
+    return request.build();
+  }
+}
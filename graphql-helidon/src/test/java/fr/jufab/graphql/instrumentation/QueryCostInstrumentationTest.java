@@ -0,0 +1,108 @@
+package fr.jufab.graphql.instrumentation;
+
+import fr.jufab.database.cache.BoundedCache;
+import fr.jufab.database.repositories.AddressRepository;
+import fr.jufab.database.repositories.PersonRepository;
+import fr.jufab.graphql.GraphQlInvocationHandler;
+import fr.jufab.graphql.datafetcher.AddressDataFetcher;
+import fr.jufab.graphql.datafetcher.PersonDataFetcher;
+import fr.jufab.graphql.document.DocumentCache;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+import graphql.schema.idl.TypeRuntimeWiring;
+import io.helidon.common.configurable.Resource;
+import io.helidon.common.reactive.Multi;
+import io.helidon.metrics.Registry;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.dataloader.DataLoaderRegistry;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class QueryCostInstrumentationTest {
+  static final String PERSONS_WITH_ADDRESS = "{ persons { id firstname address { city } } }";
+  // 5 + 100 * (id 1 + firstname 1 + (address 2 + city 1))
+  static final long PERSONS_WITH_ADDRESS_COST = 505;
+
+  @Mock PersonRepository personRepository;
+  @Mock AddressRepository addressRepository;
+  MetricRegistry registry;
+  GraphQLSchema schema;
+
+  @BeforeEach
+  void initTest() {
+    registry = Registry.create(MetricRegistry.Type.APPLICATION);
+    PersonDataFetcher personDataFetcher = new PersonDataFetcher(personRepository);
+    AddressDataFetcher addressDataFetcher = new AddressDataFetcher(addressRepository);
+    String sdl = Resource.create("person.graphqls").string(StandardCharsets.UTF_8);
+    schema = new SchemaGenerator().makeExecutableSchema(new SchemaParser().parse(sdl),
+        RuntimeWiring.newRuntimeWiring()
+            .type(TypeRuntimeWiring.newTypeWiring("Query")
+                .dataFetcher("persons", personDataFetcher.getPersons()))
+            .type(TypeRuntimeWiring.newTypeWiring("Person")
+                .dataFetcher("address", addressDataFetcher.getAddressById()))
+            .build());
+  }
+
+  @Test
+  void shouldCountTheSelectionOfAListForEachEstimatedItem() {
+    when(personRepository.getPersons(any())).thenReturn(Multi.empty());
+
+    Map<String, Object> result = handler(10, 1000).execute(PERSONS_WITH_ADDRESS, null, Map.of());
+
+    assertThat(result).doesNotContainKey("errors");
+    assertThat(registry.histogram(QueryCostInstrumentation.COST)
+        .getSnapshot().getMax()).isEqualTo(PERSONS_WITH_ADDRESS_COST);
+    assertThat(registry.histogram(QueryCostInstrumentation.DEPTH)
+        .getSnapshot().getMax()).isEqualTo(3);
+  }
+
+  @Test
+  void shouldRejectAnOperationOverTheCostBudgetEvenFromTheDocumentCache() {
+    GraphQlInvocationHandler handler = handler(10, 500);
+
+    for (int i = 0; i < 2; i++) {
+      assertThat(handler.execute(PERSONS_WITH_ADDRESS, null, Map.of()))
+          .extractingByKey("errors").asString()
+          .contains("maximum query cost exceeded 505 > 500");
+    }
+    verifyNoInteractions(personRepository, addressRepository);
+    assertThat(registry.counter(QueryCostInstrumentation.REJECTED, new Tag("limit", "cost"))
+        .getCount()).isEqualTo(2);
+  }
+
+  @Test
+  void shouldRejectATooDeepOperation() {
+    assertThat(handler(2, 1000).execute(PERSONS_WITH_ADDRESS, null, Map.of()))
+        .extractingByKey("errors").asString()
+        .contains("maximum query depth exceeded 3 > 2");
+    verifyNoInteractions(personRepository, addressRepository);
+  }
+
+  @Test
+  void shouldNotCountTheIntrospection() {
+    assertThat(handler(2, 10).execute("{ __schema { types { name fields { name } } } }", null,
+        Map.of())).doesNotContainKey("errors");
+  }
+
+  private GraphQlInvocationHandler handler(int maxDepth, long maxCost) {
+    return new GraphQlInvocationHandler(schema, DataLoaderRegistry::new,
+        new DocumentCache(new BoundedCache<>("cost-test", 10, 1, TimeUnit.MINUTES)),
+        new QueryCostInstrumentation(registry, maxDepth, maxCost, 10,
+            Map.of("Query.persons", 5, "Person.address", 2), Map.of("Query.persons", 100)));
+  }
+}
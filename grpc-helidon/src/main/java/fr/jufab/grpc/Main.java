@@ -1,7 +1,13 @@
 package fr.jufab.grpc;
 
+import fr.jufab.database.cache.BoundedCache;
+import fr.jufab.database.id.IdGenerator;
 import fr.jufab.database.repositories.AddressRepository;
 import fr.jufab.database.repositories.PersonRepository;
+import fr.jufab.grpc.interceptor.CancellationInterceptor;
+import fr.jufab.grpc.interceptor.ConcurrencyLimitInterceptor;
+import fr.jufab.grpc.interceptor.ExecutorInterceptor;
+import fr.jufab.grpc.interceptor.MetricsInterceptor;
 import fr.jufab.grpc.service.AddressGrpcService;
 import fr.jufab.grpc.service.PersonGrpcService;
 import io.helidon.common.LogConfig;
@@ -60,26 +66,73 @@ public final class Main {
 
     initTable(dbClient);
 
+    AddressRepository addressRepository = new AddressRepository(dbClient,
+        IdGenerator.create(dbClient, AddressRepository.SEQUENCE, dbConfig.get("id-generator")),
+        BoundedCache.create(AddressRepository.CACHE_NAME, dbConfig.get("address-cache")));
+    PersonRepository personRepository = new PersonRepository(dbClient, addressRepository,
+        IdGenerator.create(dbClient, PersonRepository.SEQUENCE, dbConfig.get("id-generator")));
+
+    ExecutorInterceptor executorInterceptor =
+        ExecutorInterceptor.create(config.get("grpcserver.executor"));
+    LOGGER.info("gRPC handlers executor : " + executorInterceptor.getMode());
+    GrpcRouting.Builder routing = GrpcRouting.builder()
+        .intercept(new MetricsInterceptor())
+        .intercept(executorInterceptor)
+        .intercept(new CancellationInterceptor());
+    Config limitConfig = config.get("grpcserver.concurrency-limit");
+    if (limitConfig.get("enabled").asBoolean().orElse(false)) {
+      routing.intercept(ConcurrencyLimitInterceptor.create(limitConfig));
+    }
+
     GrpcServer grpcServer = GrpcServer
-        .create(GrpcServerConfiguration.create(config.get("grpcserver")), GrpcRouting.builder()
-            .register(buildPersonServiceGrpc(dbClient))
-            .register(buildAddressServiceGrpc(dbClient))
+        .create(GrpcServerConfiguration.create(config.get("grpcserver")), routing
+            .register(buildPersonServiceGrpc(personRepository, config.get("grpcserver.lookup")))
+            .register(buildAddressServiceGrpc(addressRepository))
             .build())
         .start()
         .toCompletableFuture()
         .get(10, TimeUnit.SECONDS);
 
+    startHttpServer(config.get("server"), dbClient);
+
     return grpcServer;
   }
 
-  static PersonGrpcService buildPersonServiceGrpc(DbClient dbClient) {
-    PersonRepository personRepository = new PersonRepository(dbClient);
-    AddressRepository addressRepository = new AddressRepository(dbClient);
-    return new PersonGrpcService(personRepository, addressRepository);
+  /**
+   * Start the side HTTP server exposing /health and /metrics, gRPC has no such endpoints.
+   *
+   * @param serverConfig "server" config node
+   * @param dbClient db client checked by the liveness
+   * @return the created {@link WebServer} instance
+   */
+  static WebServer startHttpServer(Config serverConfig, DbClient dbClient)
+      throws InterruptedException, ExecutionException, TimeoutException {
+    HealthSupport health = HealthSupport.builder()
+        .addLiveness(DbClientHealthCheck.builder(dbClient).query().build())
+        .build();
+    WebServer webServer = WebServer.builder()
+        .routing(Routing.builder()
+            .register(health)
+            .register(MetricsSupport.create())
+            .build())
+        .config(serverConfig)
+        .build();
+    webServer.start().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    LOGGER.info("Health and metrics on http://localhost:" + webServer.port());
+    return webServer;
+  }
+
+  static PersonGrpcService buildPersonServiceGrpc(PersonRepository personRepository,
+      Config lookupConfig) {
+    return new PersonGrpcService(personRepository)
+        .lookupBatching(
+            lookupConfig.get("batch-size").asInt()
+                .orElse(PersonGrpcService.DEFAULT_LOOKUP_BATCH_SIZE),
+            lookupConfig.get("window-millis").asLong()
+                .orElse(PersonGrpcService.DEFAULT_LOOKUP_WINDOW_MILLIS));
   }
 
-  static AddressGrpcService buildAddressServiceGrpc(DbClient dbClient) {
-    AddressRepository addressRepository = new AddressRepository(dbClient);
+  static AddressGrpcService buildAddressServiceGrpc(AddressRepository addressRepository) {
     return new AddressGrpcService(addressRepository);
   }
 
@@ -93,7 +146,10 @@ public final class Main {
         .thenAccept(value -> LOGGER.info("CREATE TABLE ADDRESS OK"));
     dbClient.execute(dbExecute -> dbExecute.namedDml("create-sequence-address"))
         .thenAccept(value -> LOGGER.info("CREATE SEQUENCE ADDRESS OK"));
-    dbClient.execute(dbExecute -> dbExecute.namedDml("create-person"))
+    dbClient.execute(dbExecute -> dbExecute.namedDml("create-person")
+        .flatMapSingle(count -> dbExecute.namedDml("add-person-firstname-upper"))
+        .flatMapSingle(count -> dbExecute.namedDml("create-index-person-firstname"))
+        .flatMapSingle(count -> dbExecute.namedDml("create-index-person-firstname-upper")))
         .thenAccept(value -> LOGGER.info("CREATE TABLE PERSON OK"));
     dbClient.execute(dbExecute -> dbExecute.namedDml("create-sequence-person"))
         .thenAccept(value -> LOGGER.info("CREATE SEQUENCE PERSON OK"));
@@ -0,0 +1,70 @@
+package fr.jufab.grpc.interceptor;
+
+import io.grpc.Context;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.helidon.metrics.RegistryFactory;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.Tag;
+
+/**
+ * Skip the handlers of the calls cancelled, or past their deadline, before they run : under load a
+ * call can wait in the executor queue longer than its client does.
+ * <p>
+ * The skipped calls are counted by {@code grpc.server.calls.skipped}, tagged with the full method
+ * name. Once started, the handlers cancel their own work with the call.
+ *
+ * @author jufab
+ * @version 1.0
+ */
+public class CancellationInterceptor implements ServerInterceptor {
+  static final String SKIPPED = "grpc.server.calls.skipped";
+
+  private final MetricRegistry registry;
+
+  public CancellationInterceptor() {
+    this(RegistryFactory.getInstance().getRegistry(MetricRegistry.Type.APPLICATION));
+  }
+
+  CancellationInterceptor(MetricRegistry registry) {
+    this.registry = registry;
+  }
+
+  @Override public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+      ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+    String method = call.getMethodDescriptor().getFullMethodName();
+    if (Context.current().isCancelled()) {
+      // the transport already ends the call
+      skipped(method);
+      return new ServerCall.Listener<>() {
+      };
+    }
+    return new ForwardingServerCallListener.SimpleForwardingServerCallListener<>(
+        next.startCall(call, headers)) {
+      /**
+       * The unary and server streaming handlers run on the half close.
+       */
+      @Override public void onHalfClose() {
+        if (Context.current().isCancelled()) {
+          skipped(method);
+        } else {
+          super.onHalfClose();
+        }
+      }
+    };
+  }
+
+  private void skipped(String method) {
+    registry.counter(org.eclipse.microprofile.metrics.Metadata.builder()
+            .withName(SKIPPED)
+            .withDescription("gRPC calls cancelled or expired before their handler ran")
+            .withType(MetricType.COUNTER)
+            .build(),
+        new Tag("method", method))
+        .inc();
+  }
+}
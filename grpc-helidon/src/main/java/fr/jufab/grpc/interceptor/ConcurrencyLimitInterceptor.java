@@ -0,0 +1,177 @@
+package fr.jufab.grpc.interceptor;
+
+import io.grpc.ForwardingServerCall;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import io.helidon.config.Config;
+import io.helidon.metrics.RegistryFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.Tag;
+
+/**
+ * Limit the concurrent calls of each service, the calls over the limit fail fast with
+ * RESOURCE_EXHAUSTED instead of queuing on the connection pool.
+ * <p>
+ * The limit adapts to the observed latency, AIMD style : it grows by one after a unary call
+ * faster than {@code timeout-millis} while the limit is at least half used, and is multiplied by
+ * {@code backoff-ratio} after a slower or failed one (UNAVAILABLE, DEADLINE_EXCEEDED,
+ * CANCELLED). Streaming calls take a slot for their whole life, but their duration does not
+ * move the limit.
+ * <p>
+ * Configured by the "grpcserver.concurrency-limit" node of server.yaml. Metrics, tagged with the
+ * service name : {@code grpc.server.limit} and {@code grpc.server.limit.rejected}.
+ *
+ * @author jufab
+ * @version 1.0
+ */
+public class ConcurrencyLimitInterceptor implements ServerInterceptor {
+  static final String LIMIT = "grpc.server.limit";
+  static final String REJECTED = "grpc.server.limit.rejected";
+  public static final int DEFAULT_INITIAL_LIMIT = 20;
+  public static final int DEFAULT_MIN_LIMIT = 4;
+  public static final int DEFAULT_MAX_LIMIT = 200;
+  public static final double DEFAULT_BACKOFF_RATIO = 0.9;
+  public static final long DEFAULT_TIMEOUT_MILLIS = 500;
+
+  private final MetricRegistry registry;
+  private final int initialLimit;
+  private final int minLimit;
+  private final int maxLimit;
+  private final double backoffRatio;
+  private final long timeoutNanos;
+  private final Map<String, Limit> limits = new ConcurrentHashMap<>();
+
+  ConcurrencyLimitInterceptor(MetricRegistry registry, int initialLimit, int minLimit,
+      int maxLimit, double backoffRatio, long timeoutMillis) {
+    if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+      throw new IllegalArgumentException("Invalid limits : min " + minLimit + ", initial "
+          + initialLimit + ", max " + maxLimit);
+    }
+    if (backoffRatio <= 0 || backoffRatio >= 1) {
+      throw new IllegalArgumentException("backoff-ratio must be in ]0, 1[ : " + backoffRatio);
+    }
+    this.registry = registry;
+    this.initialLimit = initialLimit;
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.backoffRatio = backoffRatio;
+    this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+  }
+
+  /**
+   * @param config "grpcserver.concurrency-limit" config node
+   * @return interceptor configured by the node, defaults for the missing values
+   */
+  public static ConcurrencyLimitInterceptor create(Config config) {
+    return new ConcurrencyLimitInterceptor(
+        RegistryFactory.getInstance().getRegistry(MetricRegistry.Type.APPLICATION),
+        config.get("initial-limit").asInt().orElse(DEFAULT_INITIAL_LIMIT),
+        config.get("min-limit").asInt().orElse(DEFAULT_MIN_LIMIT),
+        config.get("max-limit").asInt().orElse(DEFAULT_MAX_LIMIT),
+        config.get("backoff-ratio").asDouble().orElse(DEFAULT_BACKOFF_RATIO),
+        config.get("timeout-millis").asLong().orElse(DEFAULT_TIMEOUT_MILLIS));
+  }
+
+  @Override public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+      ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+    Limit limit = limits.computeIfAbsent(MethodDescriptor.extractFullServiceName(
+        call.getMethodDescriptor().getFullMethodName()), Limit::new);
+    if (!limit.tryAcquire()) {
+      call.close(Status.RESOURCE_EXHAUSTED.withDescription(
+          "Concurrency limit of " + limit.getLimit() + " calls reached"), new Metadata());
+      return new ServerCall.Listener<>() {
+      };
+    }
+    boolean unary = call.getMethodDescriptor().getType() == MethodDescriptor.MethodType.UNARY;
+    long start = System.nanoTime();
+    AtomicBoolean released = new AtomicBoolean();
+    ServerCall<ReqT, RespT> limitedCall =
+        new ForwardingServerCall.SimpleForwardingServerCall<>(call) {
+          @Override public void close(Status status, Metadata trailers) {
+            if (released.compareAndSet(false, true)) {
+              limit.release(unary, status.getCode(), System.nanoTime() - start);
+            }
+            super.close(status, trailers);
+          }
+        };
+    try {
+      return new ForwardingServerCallListener.SimpleForwardingServerCallListener<>(
+          next.startCall(limitedCall, headers)) {
+        @Override public void onCancel() {
+          if (released.compareAndSet(false, true)) {
+            limit.release(unary, Status.Code.CANCELLED, System.nanoTime() - start);
+          }
+          super.onCancel();
+        }
+      };
+    } catch (RuntimeException e) {
+      if (released.compareAndSet(false, true)) {
+        limit.release(false, Status.Code.INTERNAL, 0);
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Adaptive limit of one service.
+   */
+  final class Limit {
+    private final Counter rejected;
+    // guarded by this
+    private double limit = initialLimit;
+    private int inFlight;
+
+    Limit(String service) {
+      Tag tag = new Tag("service", service);
+      registry.register(org.eclipse.microprofile.metrics.Metadata.builder()
+          .withName(LIMIT)
+          .withDescription("Concurrent calls accepted by the service")
+          .withType(MetricType.GAUGE)
+          .build(), (Gauge<Integer>) this::getLimit, tag);
+      rejected = registry.counter(org.eclipse.microprofile.metrics.Metadata.builder()
+          .withName(REJECTED)
+          .withDescription("Calls rejected with RESOURCE_EXHAUSTED by the concurrency limit")
+          .withType(MetricType.COUNTER)
+          .build(), tag);
+    }
+
+    synchronized int getLimit() {
+      return (int) limit;
+    }
+
+    boolean tryAcquire() {
+      synchronized (this) {
+        if (inFlight < (int) limit) {
+          inFlight++;
+          return true;
+        }
+      }
+      rejected.inc();
+      return false;
+    }
+
+    synchronized void release(boolean sample, Status.Code code, long durationNanos) {
+      if (sample) {
+        if (durationNanos > timeoutNanos || code == Status.Code.UNAVAILABLE
+            || code == Status.Code.DEADLINE_EXCEEDED || code == Status.Code.CANCELLED) {
+          limit = Math.max(minLimit, limit * backoffRatio);
+        } else if (inFlight * 2 >= limit) {
+          limit = Math.min(maxLimit, limit + 1);
+        }
+      }
+      inFlight--;
+    }
+  }
+}
@@ -0,0 +1,206 @@
+package fr.jufab.grpc.interceptor;
+
+import io.grpc.Context;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.helidon.config.Config;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Run the handlers of the calls on the executor of their mode, configured by the
+ * "grpcserver.executor" node of server.yaml :
+ * <ul>
+ * <li>{@link Mode#DIRECT} : on the gRPC thread delivering the call, for the reactive handlers that
+ * never block</li>
+ * <li>{@link Mode#POOLS} : reads and writes on their own bounded pool, a burst of writes does not
+ * delay the reads. A full pool runs the handler on the gRPC thread, which stops reading the
+ * network until it is done</li>
+ * <li>{@link Mode#VIRTUAL} : a virtual thread for each handler run, on the runtimes that have
+ * them, {@link Mode#POOLS} otherwise</li>
+ * </ul>
+ * The callbacks of a call keep their order and their gRPC {@link Context}. Writes are the methods
+ * with a name starting by {@code write-method-prefix}.
+ *
+ * @author jufab
+ * @version 1.0
+ */
+public class ExecutorInterceptor implements ServerInterceptor {
+  final static Logger LOGGER = Logger.getLogger(ExecutorInterceptor.class.getName());
+  public static final int DEFAULT_READ_THREADS = 16;
+  public static final int DEFAULT_WRITE_THREADS = 4;
+  public static final int DEFAULT_QUEUE_SIZE = 1000;
+  public static final String DEFAULT_WRITE_METHOD_PREFIX = "create";
+
+  /**
+   * Where the handlers run.
+   */
+  public enum Mode {
+    DIRECT, POOLS, VIRTUAL
+  }
+
+  private final Mode mode;
+  private final Executor readExecutor;
+  private final Executor writeExecutor;
+  private final Predicate<MethodDescriptor<?, ?>> write;
+
+  ExecutorInterceptor(Mode mode, Executor readExecutor, Executor writeExecutor,
+      Predicate<MethodDescriptor<?, ?>> write) {
+    this.mode = mode;
+    this.readExecutor = readExecutor;
+    this.writeExecutor = writeExecutor;
+    this.write = write;
+  }
+
+  /**
+   * @param config "grpcserver.executor" config node
+   * @return interceptor configured by the node, direct mode by default
+   */
+  public static ExecutorInterceptor create(Config config) {
+    Mode mode = config.get("mode").asString()
+        .map(value -> Mode.valueOf(value.toUpperCase(Locale.ROOT)))
+        .orElse(Mode.DIRECT);
+    String writePrefix =
+        config.get("write-method-prefix").asString().orElse(DEFAULT_WRITE_METHOD_PREFIX);
+    Predicate<MethodDescriptor<?, ?>> write =
+        method -> bareMethodName(method).startsWith(writePrefix);
+    if (mode == Mode.VIRTUAL) {
+      ExecutorService virtual = virtualThreadPerTaskExecutor();
+      if (virtual != null) {
+        return new ExecutorInterceptor(mode, virtual, virtual, write);
+      }
+      LOGGER.warning("No virtual threads on this runtime, executor mode " + Mode.POOLS);
+      mode = Mode.POOLS;
+    }
+    if (mode == Mode.POOLS) {
+      int queueSize = config.get("queue-size").asInt().orElse(DEFAULT_QUEUE_SIZE);
+      return new ExecutorInterceptor(mode,
+          boundedPool("grpc-read-", config.get("read-threads").asInt().orElse(DEFAULT_READ_THREADS),
+              queueSize),
+          boundedPool("grpc-write-",
+              config.get("write-threads").asInt().orElse(DEFAULT_WRITE_THREADS), queueSize),
+          write);
+    }
+    return new ExecutorInterceptor(mode, null, null, write);
+  }
+
+  public Mode getMode() {
+    return mode;
+  }
+
+  @Override public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+      ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+    if (mode == Mode.DIRECT) {
+      return next.startCall(call, headers);
+    }
+    SerializingExecutor executor = new SerializingExecutor(
+        write.test(call.getMethodDescriptor()) ? writeExecutor : readExecutor);
+    return new ForwardingServerCallListener.SimpleForwardingServerCallListener<>(
+        next.startCall(call, headers)) {
+      @Override public void onMessage(ReqT message) {
+        executor.execute(Context.current().wrap(() -> super.onMessage(message)));
+      }
+
+      @Override public void onHalfClose() {
+        executor.execute(Context.current().wrap(super::onHalfClose));
+      }
+
+      @Override public void onCancel() {
+        executor.execute(Context.current().wrap(super::onCancel));
+      }
+
+      @Override public void onComplete() {
+        executor.execute(Context.current().wrap(super::onComplete));
+      }
+
+      @Override public void onReady() {
+        executor.execute(Context.current().wrap(super::onReady));
+      }
+    };
+  }
+
+  private static String bareMethodName(MethodDescriptor<?, ?> method) {
+    String fullMethodName = method.getFullMethodName();
+    return fullMethodName.substring(fullMethodName.lastIndexOf('/') + 1);
+  }
+
+  private static ExecutorService boundedPool(String prefix, int threads, int queueSize) {
+    AtomicInteger count = new AtomicInteger();
+    return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueSize), runnable -> {
+          Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+  }
+
+  /**
+   * @return {@code Executors.newVirtualThreadPerTaskExecutor()}, null before Java 21
+   */
+  static ExecutorService virtualThreadPerTaskExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+          .invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Run the tasks one after the other, in their order, on the executor.
+   */
+  static final class SerializingExecutor implements Executor, Runnable {
+    private final Executor executor;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    SerializingExecutor(Executor executor) {
+      this.executor = executor;
+    }
+
+    @Override public void execute(Runnable task) {
+      tasks.add(task);
+      schedule();
+    }
+
+    private void schedule() {
+      if (running.compareAndSet(false, true)) {
+        executor.execute(this);
+      }
+    }
+
+    @Override public void run() {
+      try {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+          try {
+            task.run();
+          } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "gRPC handler error", e);
+          }
+        }
+      } finally {
+        running.set(false);
+      }
+      if (!tasks.isEmpty()) {
+        schedule();
+      }
+    }
+  }
+}
@@ -0,0 +1,145 @@
+package fr.jufab.grpc.interceptor;
+
+import com.google.protobuf.MessageLite;
+import io.grpc.ForwardingServerCall;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import io.helidon.metrics.RegistryFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.eclipse.microprofile.metrics.ConcurrentGauge;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Histogram;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+import org.eclipse.microprofile.metrics.Timer;
+
+/**
+ * Application metrics of each gRPC method, tagged with the full method name :
+ * <ul>
+ * <li>{@code grpc.server.calls.duration} : timer of the calls, from start to close</li>
+ * <li>{@code grpc.server.calls.inflight} : calls started and not closed</li>
+ * <li>{@code grpc.server.request.size} and {@code grpc.server.response.size} : histograms of the
+ * message sizes in bytes</li>
+ * <li>{@code grpc.server.calls} : counter of the closed calls, also tagged with the status
+ * code</li>
+ * </ul>
+ *
+ * @author jufab
+ * @version 1.0
+ */
+public class MetricsInterceptor implements ServerInterceptor {
+  static final String DURATION = "grpc.server.calls.duration";
+  static final String IN_FLIGHT = "grpc.server.calls.inflight";
+  static final String REQUEST_SIZE = "grpc.server.request.size";
+  static final String RESPONSE_SIZE = "grpc.server.response.size";
+  static final String CALLS = "grpc.server.calls";
+
+  private final MetricRegistry registry;
+  private final Map<String, MethodMetrics> methods = new ConcurrentHashMap<>();
+
+  public MetricsInterceptor() {
+    this(RegistryFactory.getInstance().getRegistry(MetricRegistry.Type.APPLICATION));
+  }
+
+  MetricsInterceptor(MetricRegistry registry) {
+    this.registry = registry;
+  }
+
+  @Override public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+      ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+    MethodMetrics metrics = methods.computeIfAbsent(
+        call.getMethodDescriptor().getFullMethodName(), MethodMetrics::new);
+    long start = System.nanoTime();
+    AtomicBoolean closed = new AtomicBoolean();
+    metrics.inFlight.inc();
+    ServerCall<ReqT, RespT> monitoredCall =
+        new ForwardingServerCall.SimpleForwardingServerCall<>(call) {
+          @Override public void sendMessage(RespT message) {
+            metrics.responseSize.update(size(message));
+            super.sendMessage(message);
+          }
+
+          @Override public void close(Status status, Metadata trailers) {
+            if (closed.compareAndSet(false, true)) {
+              metrics.closed(status.getCode(), System.nanoTime() - start);
+            }
+            super.close(status, trailers);
+          }
+        };
+    return new ForwardingServerCallListener.SimpleForwardingServerCallListener<>(
+        next.startCall(monitoredCall, headers)) {
+      @Override public void onMessage(ReqT message) {
+        metrics.requestSize.update(size(message));
+        super.onMessage(message);
+      }
+
+      @Override public void onCancel() {
+        // cancelled by the client or its deadline, the call is not closed by the service
+        if (closed.compareAndSet(false, true)) {
+          metrics.closed(Status.Code.CANCELLED, System.nanoTime() - start);
+        }
+        super.onCancel();
+      }
+    };
+  }
+
+  private static int size(Object message) {
+    return message instanceof MessageLite ? ((MessageLite) message).getSerializedSize() : 0;
+  }
+
+  private final class MethodMetrics {
+    final Tag method;
+    final Timer duration;
+    final ConcurrentGauge inFlight;
+    final Histogram requestSize;
+    final Histogram responseSize;
+    final Map<Status.Code, Counter> calls = new ConcurrentHashMap<>();
+
+    MethodMetrics(String fullMethodName) {
+      method = new Tag("method", fullMethodName);
+      duration = registry.timer(org.eclipse.microprofile.metrics.Metadata.builder()
+          .withName(DURATION)
+          .withDescription("Duration of the gRPC calls")
+          .withType(MetricType.TIMER)
+          .withUnit(MetricUnits.NANOSECONDS)
+          .build(), method);
+      inFlight = registry.concurrentGauge(org.eclipse.microprofile.metrics.Metadata.builder()
+          .withName(IN_FLIGHT)
+          .withDescription("gRPC calls in progress")
+          .withType(MetricType.CONCURRENT_GAUGE)
+          .build(), method);
+      requestSize = histogram(REQUEST_SIZE, "Size of the gRPC request messages");
+      responseSize = histogram(RESPONSE_SIZE, "Size of the gRPC response messages");
+    }
+
+    private Histogram histogram(String name, String description) {
+      return registry.histogram(org.eclipse.microprofile.metrics.Metadata.builder()
+          .withName(name)
+          .withDescription(description)
+          .withType(MetricType.HISTOGRAM)
+          .withUnit(MetricUnits.BYTES)
+          .build(), method);
+    }
+
+    void closed(Status.Code code, long durationNanos) {
+      inFlight.dec();
+      duration.update(durationNanos, TimeUnit.NANOSECONDS);
+      calls.computeIfAbsent(code, key -> registry.counter(
+          org.eclipse.microprofile.metrics.Metadata.builder()
+              .withName(CALLS)
+              .withDescription("gRPC calls closed, by status code")
+              .withType(MetricType.COUNTER)
+              .build(), method, new Tag("code", key.name())))
+          .inc();
+    }
+  }
+}
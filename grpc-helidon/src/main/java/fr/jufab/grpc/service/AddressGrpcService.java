@@ -4,13 +4,16 @@ import fr.jufab.database.dto.Address;
 import fr.jufab.database.repositories.AddressRepository;
 import fr.jufab.grpc.proto.AddressServiceGrpc;
 import fr.jufab.grpc.proto.AddressToSave;
+import fr.jufab.grpc.proto.Addresses;
 import fr.jufab.grpc.proto.QueryAddress;
+import fr.jufab.grpc.proto.QueryAddresses;
 import io.grpc.stub.StreamObserver;
-import java.util.concurrent.ExecutionException;
-import java.util.logging.Level;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.logging.Logger;
 
-import static io.helidon.grpc.core.ResponseHelper.complete;
+import static fr.jufab.grpc.service.ReactiveResponses.complete;
 
 /**
  * @author jufab
@@ -26,32 +29,40 @@ public class AddressGrpcService extends AddressServiceGrpc.AddressServiceImplBas
 
   @Override public void createAddress(AddressToSave request,
       StreamObserver<fr.jufab.grpc.proto.Address> responseObserver) {
-    try {
-      complete(responseObserver, buildAddress(
-          addressRepository.createAddress(Address.builder()
-              .street(request.getStreet())
-              .zipCode(request.getZipCode())
-              .city(request.getCity())
-              .build()).get()
-          )
-      );
-    } catch (InterruptedException e) {
-      LOGGER.log(Level.SEVERE, "Error", e);
-    } catch (ExecutionException e) {
-      LOGGER.log(Level.SEVERE, "Error", e);
-    }
+    complete(responseObserver, addressRepository.createAddress(Address.builder()
+        .street(request.getStreet())
+        .zipCode(request.getZipCode())
+        .city(request.getCity())
+        .build())
+        .map(this::buildAddress));
   }
 
   @Override public void addressById(QueryAddress request,
       StreamObserver<fr.jufab.grpc.proto.Address> responseObserver) {
-    try {
-      complete(responseObserver,
-          buildAddress(addressRepository.getAddressById(request.getId()).get()));
-    } catch (InterruptedException e) {
-      LOGGER.log(Level.SEVERE, "Error", e);
-    } catch (ExecutionException e) {
-      LOGGER.log(Level.SEVERE, "Error", e);
-    }
+    complete(responseObserver,
+        addressRepository.getAddressById(request.getId()).map(this::buildAddress));
+  }
+
+  /**
+   * Addresses of the queried ids with one set-based query, in the order of the ids, duplicates
+   * answered once. Unknown ids are listed in missingIds.
+   */
+  @Override public void addressesByIds(QueryAddresses request,
+      StreamObserver<Addresses> responseObserver) {
+    List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(request.getIdsList()));
+    complete(responseObserver, addressRepository.getAddressesByIds(ids)
+        .map(addresses -> {
+          Addresses.Builder response = Addresses.newBuilder();
+          for (Integer id : ids) {
+            Address address = addresses.get(id);
+            if (address != null) {
+              response.addAddresses(buildAddress(address));
+            } else {
+              response.addMissingIds(id);
+            }
+          }
+          return response.build();
+        }));
   }
 
   private fr.jufab.grpc.proto.Address buildAddress(Address address) {
@@ -0,0 +1,80 @@
+package fr.jufab.grpc.service;
+
+import io.helidon.common.reactive.Single;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+/**
+ * Subscribe to a single like {@link Single#whenComplete(BiConsumer)}, keeping the subscription to
+ * cancel it : {@link Single#cancel()} only cancels a subscription of its own, not the running one.
+ * <p>
+ * Cancelling stops the upstream, no more row is read nor mapped, and the action is not called.
+ *
+ * @author jufab
+ * @version 1.0
+ */
+class CancellableSubscriber<T> implements Flow.Subscriber<T> {
+  private final BiConsumer<T, Throwable> action;
+  private final AtomicBoolean done = new AtomicBoolean();
+  private volatile Flow.Subscription subscription;
+  private T value;
+
+  /**
+   * @param action called with the value, null if empty, or the error of the single subscribed to
+   */
+  CancellableSubscriber(BiConsumer<T, Throwable> action) {
+    this.action = action;
+  }
+
+  /**
+   * @param single single to subscribe to
+   * @param action called with the value, null if empty, or the error of the single
+   * @return subscriber, to cancel
+   */
+  static <T> CancellableSubscriber<T> whenComplete(Single<T> single,
+      BiConsumer<T, Throwable> action) {
+    CancellableSubscriber<T> subscriber = new CancellableSubscriber<>(action);
+    single.subscribe(subscriber);
+    return subscriber;
+  }
+
+  @Override public void onSubscribe(Flow.Subscription subscription) {
+    this.subscription = subscription;
+    if (done.get()) {
+      subscription.cancel();
+    } else {
+      subscription.request(Long.MAX_VALUE);
+    }
+  }
+
+  @Override public void onNext(T item) {
+    value = item;
+  }
+
+  @Override public void onError(Throwable throwable) {
+    if (done.compareAndSet(false, true)) {
+      action.accept(null, throwable);
+    }
+  }
+
+  @Override public void onComplete() {
+    if (done.compareAndSet(false, true)) {
+      action.accept(value, null);
+    }
+  }
+
+  /**
+   * @return true if the single was still running, false if it was already completed or cancelled
+   */
+  boolean cancel() {
+    if (!done.compareAndSet(false, true)) {
+      return false;
+    }
+    Flow.Subscription current = subscription;
+    if (current != null) {
+      current.cancel();
+    }
+    return true;
+  }
+}
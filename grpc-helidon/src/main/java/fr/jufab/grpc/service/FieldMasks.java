@@ -0,0 +1,87 @@
+package fr.jufab.grpc.service;
+
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.FieldMask;
+import com.google.protobuf.Message;
+
+/**
+ * Keep only the fields of a {@link FieldMask} in a message. Paths are proto field names,
+ * separated by "." for the fields of a nested message, e.g. "address.city".
+ *
+ * @author jufab
+ * @version 1.0
+ */
+final class FieldMasks {
+
+  private FieldMasks() {
+  }
+
+  /**
+   * @param descriptor type of the masked messages
+   * @param mask mask to check
+   * @throws IllegalArgumentException on a path not matching a field of {@code descriptor}
+   */
+  static void check(Descriptors.Descriptor descriptor, FieldMask mask) {
+    for (String path : mask.getPathsList()) {
+      Descriptors.Descriptor type = descriptor;
+      for (String name : path.split("\\.", -1)) {
+        Descriptors.FieldDescriptor field = type == null ? null : type.findFieldByName(name);
+        if (field == null) {
+          throw new IllegalArgumentException("Unknown field mask path : " + path);
+        }
+        type = field.getJavaType() == Descriptors.FieldDescriptor.JavaType.MESSAGE
+            && !field.isRepeated() ? field.getMessageType() : null;
+      }
+    }
+  }
+
+  /**
+   * @param mask field mask
+   * @param path path of a field
+   * @return true if the mask is empty or keeps the field or one of its nested fields
+   */
+  static boolean includes(FieldMask mask, String path) {
+    if (mask.getPathsCount() == 0) {
+      return true;
+    }
+    for (String masked : mask.getPathsList()) {
+      if (masked.equals(path) || masked.startsWith(path + ".")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @param message message to trim
+   * @param mask checked mask, an empty mask keeps all fields
+   * @return copy of the message with the masked fields only
+   */
+  @SuppressWarnings("unchecked")
+  static <M extends Message> M trim(M message, FieldMask mask) {
+    if (mask.getPathsCount() == 0) {
+      return message;
+    }
+    Message.Builder builder = message.newBuilderForType();
+    for (String path : mask.getPathsList()) {
+      copy(message, builder, path);
+    }
+    return (M) builder.build();
+  }
+
+  private static void copy(Message source, Message.Builder target, String path) {
+    int dot = path.indexOf('.');
+    Descriptors.FieldDescriptor field = source.getDescriptorForType()
+        .findFieldByName(dot < 0 ? path : path.substring(0, dot));
+    if (field.getJavaType() == Descriptors.FieldDescriptor.JavaType.MESSAGE
+        && !field.isRepeated() && !source.hasField(field)) {
+      return;
+    }
+    if (dot < 0) {
+      target.setField(field, source.getField(field));
+    } else {
+      copy((Message) source.getField(field), target.getFieldBuilder(field),
+          path.substring(dot + 1));
+    }
+  }
+}
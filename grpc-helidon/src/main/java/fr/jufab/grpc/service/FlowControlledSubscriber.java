@@ -0,0 +1,103 @@
+package fr.jufab.grpc.service;
+
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Send the items of a publisher to a server streaming call, following the gRPC flow control.
+ * <p>
+ * Items are requested by batches of {@link #BATCH_SIZE}, and the next batch only once the call is
+ * ready to send : a slow client stops the publisher instead of filling the server memory. A
+ * cancelled call cancels the subscription. Must be created in the call handler, gRPC only accepts
+ * its handlers before the handler returns.
+ *
+ * @author jufab
+ * @version 1.0
+ */
+class FlowControlledSubscriber<T, R> implements Flow.Subscriber<T> {
+  static final int BATCH_SIZE = 32;
+
+  private final StreamObserver<R> responseObserver;
+  private final ServerCallStreamObserver<R> serverCallObserver;
+  private final Function<T, R> mapper;
+  private final AtomicInteger outstanding = new AtomicInteger();
+  private volatile Flow.Subscription subscription;
+  private volatile boolean cancelled;
+
+  FlowControlledSubscriber(StreamObserver<R> responseObserver, Function<T, R> mapper) {
+    this.responseObserver = responseObserver;
+    this.mapper = mapper;
+    if (responseObserver instanceof ServerCallStreamObserver) {
+      serverCallObserver = (ServerCallStreamObserver<R>) responseObserver;
+      serverCallObserver.setOnReadyHandler(this::requestIfReady);
+      serverCallObserver.setOnCancelHandler(() -> {
+        if (!cancelled) {
+          ReactiveResponses.cancelled(ReactiveResponses.STREAM);
+        }
+        cancel();
+      });
+    } else {
+      serverCallObserver = null;
+    }
+  }
+
+  @Override public void onSubscribe(Flow.Subscription subscription) {
+    this.subscription = subscription;
+    if (cancelled) {
+      subscription.cancel();
+    } else if (serverCallObserver == null) {
+      subscription.request(Long.MAX_VALUE);
+    } else {
+      requestIfReady();
+    }
+  }
+
+  @Override public void onNext(T item) {
+    R response;
+    try {
+      response = mapper.apply(item);
+    } catch (RuntimeException e) {
+      cancel();
+      responseObserver.onError(ReactiveResponses.toStatusException(e));
+      return;
+    }
+    responseObserver.onNext(response);
+    if (serverCallObserver != null && outstanding.decrementAndGet() == 0) {
+      requestIfReady();
+    }
+  }
+
+  @Override public void onError(Throwable throwable) {
+    if (!cancelled) {
+      responseObserver.onError(ReactiveResponses.toStatusException(throwable));
+    }
+  }
+
+  @Override public void onComplete() {
+    if (!cancelled) {
+      responseObserver.onCompleted();
+    }
+  }
+
+  /**
+   * Request the next batch once the previous one is sent and the call can send more.
+   */
+  private void requestIfReady() {
+    Flow.Subscription current = subscription;
+    if (current != null && !cancelled && serverCallObserver.isReady()
+        && outstanding.compareAndSet(0, BATCH_SIZE)) {
+      current.request(BATCH_SIZE);
+    }
+  }
+
+  private void cancel() {
+    cancelled = true;
+    Flow.Subscription current = subscription;
+    if (current != null) {
+      current.cancel();
+    }
+  }
+}
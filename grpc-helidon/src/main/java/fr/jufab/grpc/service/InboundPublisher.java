@@ -0,0 +1,59 @@
+package fr.jufab.grpc.service;
+
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import java.util.concurrent.Flow;
+
+/**
+ * Publish the messages of a client stream to its only subscriber, following its demand.
+ * <p>
+ * The automatic inbound flow control of the call is disabled : gRPC only reads the messages the
+ * subscriber requested, a slow subscriber slows down the client instead of buffering its messages
+ * on the server. Must be created in the call handler, before it returns this request observer.
+ *
+ * @author jufab
+ * @version 1.0
+ */
+class InboundPublisher<T> implements Flow.Publisher<T>, StreamObserver<T> {
+  private final ServerCallStreamObserver<?> serverCallObserver;
+  private volatile Flow.Subscriber<? super T> subscriber;
+
+  /**
+   * @param responseObserver response observer of the call
+   */
+  InboundPublisher(StreamObserver<?> responseObserver) {
+    if (responseObserver instanceof ServerCallStreamObserver) {
+      serverCallObserver = (ServerCallStreamObserver<?>) responseObserver;
+      serverCallObserver.disableAutoRequest();
+    } else {
+      serverCallObserver = null;
+    }
+  }
+
+  @Override public void subscribe(Flow.Subscriber<? super T> subscriber) {
+    this.subscriber = subscriber;
+    subscriber.onSubscribe(new Flow.Subscription() {
+      @Override public void request(long n) {
+        if (serverCallObserver != null && n > 0) {
+          serverCallObserver.request((int) Math.min(n, Integer.MAX_VALUE));
+        }
+      }
+
+      @Override public void cancel() {
+        // the call ends with the response, nothing more is requested meanwhile
+      }
+    });
+  }
+
+  @Override public void onNext(T value) {
+    subscriber.onNext(value);
+  }
+
+  @Override public void onError(Throwable throwable) {
+    subscriber.onError(throwable);
+  }
+
+  @Override public void onCompleted() {
+    subscriber.onComplete();
+  }
+}
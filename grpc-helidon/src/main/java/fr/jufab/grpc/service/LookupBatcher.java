@@ -0,0 +1,276 @@
+package fr.jufab.grpc.service;
+
+import fr.jufab.database.dto.Person;
+import fr.jufab.grpc.proto.QueryPerson;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import io.helidon.common.reactive.Single;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Group the queries of a lookup stream to resolve them with one set-based query.
+ * <p>
+ * A batch is looked up once it holds {@code batchSize} queries or {@code windowMillis} after its
+ * first query, whichever comes first. Each query is answered by its person, or by a person with
+ * only the queried id when not found, tagged with the tag of the query. Batches may be answered
+ * out of order, the tag correlates the answers.
+ * <p>
+ * On a server call, the stream follows the gRPC flow control : at most
+ * {@link #MAX_OUTSTANDING_BATCHES} batches are looked up or waiting to be sent, the next one waits
+ * for a previous one to be sent, and only one batch of queries more is read from the client
+ * meanwhile. Answers are only sent while the call is ready. A cancelled call cancels its running
+ * lookups. Must be created in the call handler, gRPC only accepts its handlers before the handler
+ * returns.
+ *
+ * @author jufab
+ * @version 1.0
+ */
+class LookupBatcher implements StreamObserver<QueryPerson> {
+  static final int MAX_OUTSTANDING_BATCHES = 4;
+  private static final ScheduledExecutorService SCHEDULER =
+      Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "lookup-batcher");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  private final Function<Collection<Integer>, Single<Map<Integer, Person>>> lookup;
+  private final Function<Person, fr.jufab.grpc.proto.Person> mapper;
+  private final StreamObserver<fr.jufab.grpc.proto.Person> responseObserver;
+  private final ServerCallStreamObserver<fr.jufab.grpc.proto.Person> serverCallObserver;
+  private final int batchSize;
+  private final long windowMillis;
+  // guarded by this
+  private List<QueryPerson> pending;
+  private boolean pendingDue;
+  private ScheduledFuture<?> scheduledFlush;
+  private final Map<List<QueryPerson>, CancellableSubscriber<?>> lookups =
+      new IdentityHashMap<>();
+  private final Deque<Iterator<fr.jufab.grpc.proto.Person>> answers = new ArrayDeque<>();
+  private int outstanding;
+  private boolean completed;
+  private boolean closed;
+
+  LookupBatcher(Function<Collection<Integer>, Single<Map<Integer, Person>>> lookup,
+      Function<Person, fr.jufab.grpc.proto.Person> mapper,
+      StreamObserver<fr.jufab.grpc.proto.Person> responseObserver, int batchSize,
+      long windowMillis) {
+    this.lookup = lookup;
+    this.mapper = mapper;
+    this.responseObserver = responseObserver;
+    this.batchSize = batchSize;
+    this.windowMillis = windowMillis;
+    this.pending = new ArrayList<>(batchSize);
+    if (responseObserver instanceof ServerCallStreamObserver) {
+      serverCallObserver = (ServerCallStreamObserver<fr.jufab.grpc.proto.Person>) responseObserver;
+      serverCallObserver.disableAutoRequest();
+      serverCallObserver.setOnReadyHandler(this::onReady);
+      serverCallObserver.setOnCancelHandler(this::cancelLookups);
+      serverCallObserver.request(batchSize);
+    } else {
+      serverCallObserver = null;
+    }
+  }
+
+  @Override public void onNext(QueryPerson query) {
+    List<QueryPerson> batch;
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      pending.add(query);
+      if (pending.size() >= batchSize) {
+        pendingDue = true;
+      } else if (pending.size() == 1) {
+        scheduledFlush = SCHEDULER.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+      }
+      batch = takePendingIfDue();
+    }
+    if (batch != null) {
+      lookup(batch);
+    }
+  }
+
+  /**
+   * The client cancelled the stream or failed : nothing more is answered.
+   */
+  @Override public void onError(Throwable throwable) {
+    cancelLookups();
+  }
+
+  @Override public void onCompleted() {
+    List<QueryPerson> batch;
+    synchronized (this) {
+      completed = true;
+      pendingDue = true;
+      batch = takePendingIfDue();
+      completeIfDone();
+    }
+    if (batch != null) {
+      lookup(batch);
+    }
+  }
+
+  private void flush() {
+    List<QueryPerson> batch;
+    synchronized (this) {
+      pendingDue = true;
+      batch = takePendingIfDue();
+    }
+    if (batch != null) {
+      lookup(batch);
+    }
+  }
+
+  /**
+   * The call can send more : send the waiting answers, which may let the next batch be looked up.
+   */
+  private void onReady() {
+    List<QueryPerson> batch;
+    synchronized (this) {
+      batch = sendAnswers();
+    }
+    if (batch != null) {
+      lookup(batch);
+    }
+  }
+
+  /**
+   * Take the pending batch if it is full or its window elapsed and fewer than
+   * {@link #MAX_OUTSTANDING_BATCHES} batches are outstanding, then read as many queries more.
+   */
+  private List<QueryPerson> takePendingIfDue() {
+    if (closed || !pendingDue || pending.isEmpty() || outstanding >= MAX_OUTSTANDING_BATCHES) {
+      return null;
+    }
+    cancelScheduledFlush();
+    List<QueryPerson> batch = pending;
+    pending = new ArrayList<>(batchSize);
+    pendingDue = false;
+    outstanding++;
+    if (serverCallObserver != null && !completed) {
+      serverCallObserver.request(batch.size());
+    }
+    return batch;
+  }
+
+  private void cancelScheduledFlush() {
+    if (scheduledFlush != null) {
+      scheduledFlush.cancel(false);
+      scheduledFlush = null;
+    }
+  }
+
+  private void lookup(List<QueryPerson> batch) {
+    CancellableSubscriber<Map<Integer, Person>> subscriber =
+        new CancellableSubscriber<>((persons, throwable) -> answer(batch, persons, throwable));
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      lookups.put(batch, subscriber);
+    }
+    lookup.apply(batch.stream().map(QueryPerson::getId).collect(Collectors.toList()))
+        .subscribe(subscriber);
+  }
+
+  private void answer(List<QueryPerson> batch, Map<Integer, Person> persons,
+      Throwable throwable) {
+    List<QueryPerson> next;
+    synchronized (this) {
+      lookups.remove(batch);
+      if (closed) {
+        return;
+      }
+      try {
+        if (throwable != null) {
+          throw throwable;
+        }
+        List<fr.jufab.grpc.proto.Person> batchAnswers = new ArrayList<>(batch.size());
+        for (QueryPerson query : batch) {
+          Person person = persons.get(query.getId());
+          fr.jufab.grpc.proto.Person.Builder answer = person == null
+              ? fr.jufab.grpc.proto.Person.newBuilder().setId(query.getId())
+              : mapper.apply(person).toBuilder();
+          batchAnswers.add(answer.setTag(query.getTag()).build());
+        }
+        answers.add(batchAnswers.iterator());
+      } catch (Throwable error) {
+        fail(error);
+        return;
+      }
+      next = sendAnswers();
+    }
+    if (next != null) {
+      lookup(next);
+    }
+  }
+
+  /**
+   * Send the answers while the call is ready, under the lock : a stream observer must not be
+   * called concurrently. A batch stops being outstanding once its last answer is sent.
+   *
+   * @return the pending batch to look up in place of the sent ones, if due
+   */
+  private List<QueryPerson> sendAnswers() {
+    while (!closed && !answers.isEmpty()
+        && (serverCallObserver == null || serverCallObserver.isReady())) {
+      Iterator<fr.jufab.grpc.proto.Person> batchAnswers = answers.peek();
+      responseObserver.onNext(batchAnswers.next());
+      if (!batchAnswers.hasNext()) {
+        answers.remove();
+        outstanding--;
+      }
+    }
+    List<QueryPerson> batch = takePendingIfDue();
+    completeIfDone();
+    return batch;
+  }
+
+  private void completeIfDone() {
+    if (completed && !closed && outstanding == 0 && pending.isEmpty()) {
+      closed = true;
+      responseObserver.onCompleted();
+    }
+  }
+
+  private void fail(Throwable error) {
+    close();
+    responseObserver.onError(ReactiveResponses.toStatusException(error));
+  }
+
+  /**
+   * Nothing more is read, looked up nor answered.
+   */
+  private void close() {
+    closed = true;
+    pending.clear();
+    answers.clear();
+    cancelScheduledFlush();
+  }
+
+  private void cancelLookups() {
+    List<CancellableSubscriber<?>> running;
+    synchronized (this) {
+      close();
+      running = new ArrayList<>(lookups.values());
+      lookups.clear();
+    }
+    running.stream()
+        .filter(CancellableSubscriber::cancel)
+        .forEach(lookup -> ReactiveResponses.cancelled(ReactiveResponses.LOOKUP));
+  }
+}
@@ -1,22 +1,24 @@
 package fr.jufab.grpc.service;
 
+import com.google.protobuf.FieldMask;
 import fr.jufab.database.dto.Address;
 import fr.jufab.database.dto.Gender;
 import fr.jufab.database.dto.Person;
-import fr.jufab.database.repositories.AddressRepository;
+import fr.jufab.database.repositories.PersonProjection;
 import fr.jufab.database.repositories.PersonRepository;
+import fr.jufab.grpc.proto.BulkCreateResult;
 import fr.jufab.grpc.proto.PersonServiceGrpc;
 import fr.jufab.grpc.proto.PersonToSave;
 import fr.jufab.grpc.proto.PersonWithAddressToSave;
 import fr.jufab.grpc.proto.QueryPerson;
 import io.grpc.stub.StreamObserver;
-import java.util.List;
-import java.util.concurrent.ExecutionException;
-import java.util.logging.Level;
+import io.helidon.common.reactive.Multi;
+import io.helidon.common.reactive.Single;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
-import static io.helidon.grpc.core.ResponseHelper.complete;
+import static fr.jufab.grpc.service.ReactiveResponses.complete;
 
 /**
  * @author jufab
@@ -24,101 +26,212 @@ import static io.helidon.grpc.core.ResponseHelper.complete;
  */
 public class PersonGrpcService extends PersonServiceGrpc.PersonServiceImplBase {
   final static Logger LOGGER = Logger.getLogger(PersonGrpcService.class.getName());
+  public static final int DEFAULT_LOOKUP_BATCH_SIZE = 100;
+  public static final long DEFAULT_LOOKUP_WINDOW_MILLIS = 5;
+  static final String ADDRESS = "address";
 
   PersonRepository personRepository;
-  AddressRepository addressRepository;
+  int lookupBatchSize = DEFAULT_LOOKUP_BATCH_SIZE;
+  long lookupWindowMillis = DEFAULT_LOOKUP_WINDOW_MILLIS;
 
-  public PersonGrpcService(PersonRepository personRepository,
-      AddressRepository addressRepository) {
+  public PersonGrpcService(PersonRepository personRepository) {
     this.personRepository = personRepository;
-    this.addressRepository = addressRepository;
+  }
+
+  /**
+   * @param batchSize max ids resolved by one query of {@link #lookupPersons(StreamObserver)}
+   * @param windowMillis max wait of a lookup for other ids to query with
+   * @return this service
+   */
+  public PersonGrpcService lookupBatching(int batchSize, long windowMillis) {
+    if (batchSize < 1 || windowMillis < 0) {
+      throw new IllegalArgumentException(
+          "Invalid lookup batching : " + batchSize + " ids, " + windowMillis + " ms");
+    }
+    this.lookupBatchSize = batchSize;
+    this.lookupWindowMillis = windowMillis;
+    return this;
   }
 
   @Override public void persons(QueryPerson request,
       StreamObserver<fr.jufab.grpc.proto.Persons> responseObserver) {
-    try {
-      complete(responseObserver, buildPersonsGrpc(personRepository.getPersons()
-          .collectList()
-          .get()));
-    } catch (InterruptedException e) {
-      LOGGER.log(Level.SEVERE, "Error", e);
-    } catch (ExecutionException e) {
-      LOGGER.log(Level.SEVERE, "Error", e);
+    FieldMask mask = request.getFieldMask();
+    if (checkMask(mask, responseObserver)) {
+      complete(responseObserver,
+          buildPersonsGrpc(personRepository.getPersons(projection(mask)), mask));
     }
   }
 
   @Override public void personById(QueryPerson request,
       StreamObserver<fr.jufab.grpc.proto.Person> responseObserver) {
-    try {
+    FieldMask mask = request.getFieldMask();
+    if (checkMask(mask, responseObserver)) {
       complete(responseObserver,
-          buildPersonGrpc(personRepository.getPersonById(request.getId()).get()));
-    } catch (InterruptedException e) {
-      LOGGER.log(Level.SEVERE, "Error", e);
-    } catch (ExecutionException e) {
-      LOGGER.log(Level.SEVERE, "Error", e);
+          personRepository.getPersonById(request.getId(), projection(mask))
+              .map(person -> buildPersonGrpc(person, mask)));
     }
   }
 
   @Override public void personsByFirstName(QueryPerson request,
       StreamObserver<fr.jufab.grpc.proto.Persons> responseObserver) {
-    try {
-      complete(responseObserver,
-          buildPersonsGrpc(
-              personRepository.getPersonsByFirstName(request.getFirstname()).collectList().get()));
-    } catch (InterruptedException e) {
-      LOGGER.log(Level.SEVERE, "Error", e);
-    } catch (ExecutionException e) {
-      LOGGER.log(Level.SEVERE, "Error", e);
+    FieldMask mask = request.getFieldMask();
+    if (checkMask(mask, responseObserver)) {
+      complete(responseObserver, buildPersonsGrpc(
+          personRepository.getPersonsByFirstName(request.getFirstname(), projection(mask)),
+          mask));
+    }
+  }
+
+  /**
+   * Stream the persons as they are read, following the gRPC flow control.
+   */
+  @Override public void streamPersons(QueryPerson request,
+      StreamObserver<fr.jufab.grpc.proto.Person> responseObserver) {
+    FieldMask mask = request.getFieldMask();
+    if (checkMask(mask, responseObserver)) {
+      personRepository.getPersons(projection(mask))
+          .subscribe(new FlowControlledSubscriber<>(responseObserver,
+              person -> buildPersonGrpc(person, mask)));
+    }
+  }
+
+  /**
+   * Stream the persons with the requested firstname as they are read, following the gRPC flow
+   * control.
+   */
+  @Override public void streamPersonsByFirstName(QueryPerson request,
+      StreamObserver<fr.jufab.grpc.proto.Person> responseObserver) {
+    FieldMask mask = request.getFieldMask();
+    if (checkMask(mask, responseObserver)) {
+      personRepository.getPersonsByFirstName(request.getFirstname(), projection(mask))
+          .subscribe(new FlowControlledSubscriber<>(responseObserver,
+              person -> buildPersonGrpc(person, mask)));
     }
   }
 
+  /**
+   * Resolve the ids of the query stream by micro-batches, see {@link LookupBatcher}.
+   */
+  @Override public StreamObserver<QueryPerson> lookupPersons(
+      StreamObserver<fr.jufab.grpc.proto.Person> responseObserver) {
+    return new LookupBatcher(personRepository::getPersonsByIdsWithAddress, this::buildPersonGrpc,
+        responseObserver, lookupBatchSize, lookupWindowMillis);
+  }
+
   @Override public void createPersonWithAddress(PersonWithAddressToSave request,
       StreamObserver<fr.jufab.grpc.proto.Person> responseObserver) {
+    complete(responseObserver, Single.just(request)
+        .map(this::buildPerson)
+        .flatMapSingle(personRepository::createPerson)
+        .map(this::buildPersonGrpc));
+  }
+
+  /**
+   * Save the persons of the client stream by batches of {@link PersonRepository#DEFAULT_BATCH_SIZE}
+   * rows, then answer with their ids in the order received.
+   */
+  @Override public StreamObserver<PersonWithAddressToSave> createPersons(
+      StreamObserver<BulkCreateResult> responseObserver) {
+    InboundPublisher<PersonWithAddressToSave> requests = new InboundPublisher<>(responseObserver);
+    complete(responseObserver, personRepository.createPersons(Multi.create(requests)
+        .map(this::buildPerson))
+        .collect(BulkCreateResult::newBuilder, (result, person) -> result.addIds(person.getId()))
+        .map(result -> result.setCount(result.getIdsCount()).build()));
+    return requests;
+  }
+
+  private Person buildPerson(PersonWithAddressToSave request) {
+    return new Person(request.getFirstname(), request.getLastname(), request.getAge(),
+        new Address(request.getStreet(), request.getZipCode(), request.getCity()),
+        Gender.valueOf(request.getGender().name()));
+  }
+
+  /**
+   * Fail the call with INVALID_ARGUMENT on an unknown field of the mask.
+   *
+   * @return true if the mask is valid
+   */
+  private static boolean checkMask(FieldMask mask, StreamObserver<?> responseObserver) {
     try {
-      complete(responseObserver, buildPersonGrpc(personRepository.createPerson(
-          new Person(request.getFirstname(), request.getLastname(), request.getAge(),
-              new Address(request.getStreet(), request.getZipCode(), request.getCity()),
-              Gender.valueOf(request.getGender().name()))).get()));
-    } catch (InterruptedException e) {
-      LOGGER.log(Level.SEVERE, "Error", e);
-    } catch (ExecutionException e) {
-      LOGGER.log(Level.SEVERE, "Error", e);
+      FieldMasks.check(fr.jufab.grpc.proto.Person.getDescriptor(), mask);
+      return true;
+    } catch (IllegalArgumentException e) {
+      responseObserver.onError(ReactiveResponses.toStatusException(e));
+      return false;
     }
   }
 
-  private fr.jufab.grpc.proto.Persons buildPersonsGrpc(List<Person> personList) {
-    return fr.jufab.grpc.proto.Persons.newBuilder().addAllPersons(
-        personList.stream()
-            .map(this::buildPersonGrpc)
-            .collect(Collectors.toList())).build();
+  private Single<fr.jufab.grpc.proto.Persons> buildPersonsGrpc(Multi<Person> persons,
+      FieldMask mask) {
+    return persons
+        .map(person -> buildPersonGrpc(person, mask))
+        .collectList()
+        .map(personList -> fr.jufab.grpc.proto.Persons.newBuilder()
+            .addAllPersons(personList)
+            .build());
   }
 
   private fr.jufab.grpc.proto.Person buildPersonGrpc(Person person) {
-    return fr.jufab.grpc.proto.Person.newBuilder()
+    return buildPersonGrpc(person, FieldMask.getDefaultInstance());
+  }
+
+  /**
+   * Columns read for a mask : every column for an empty mask, else the columns of the masked
+   * fields, with every address column for "address".
+   */
+  static PersonProjection projection(FieldMask mask) {
+    if (mask.getPathsCount() == 0) {
+      return PersonProjection.ALL;
+    }
+    Set<String> personFields = new HashSet<>();
+    Set<String> addressFields = new HashSet<>();
+    for (String path : mask.getPathsList()) {
+      if (path.equals(ADDRESS)) {
+        fr.jufab.grpc.proto.Address.getDescriptor().getFields()
+            .forEach(field -> addressFields.add(field.getName()));
+      } else if (path.startsWith(ADDRESS + ".")) {
+        addressFields.add(path.substring(ADDRESS.length() + 1));
+      } else {
+        personFields.add(path);
+      }
+    }
+    return PersonProjection.of(personFields, addressFields);
+  }
+
+  /**
+   * Only the values read are set, the address only if the mask keeps it.
+   */
+  private fr.jufab.grpc.proto.Person buildPersonGrpc(Person person, FieldMask mask) {
+    fr.jufab.grpc.proto.Person.Builder personGrpc = fr.jufab.grpc.proto.Person.newBuilder()
         .setId(person.getId())
-        .setAddress(buildAddressGrpc(person.getAddress()))
-        .setFirstname(person.getFirstname())
-        .setLastname(person.getLastname())
-        .setAge(person.getAge())
-        .setGender(fr.jufab.grpc.proto.Gender.valueOf(person.getGender().name()))
-        .build();
+        .setAge(person.getAge());
+    if (person.getFirstname() != null) {
+      personGrpc.setFirstname(person.getFirstname());
+    }
+    if (person.getLastname() != null) {
+      personGrpc.setLastname(person.getLastname());
+    }
+    if (person.getGender() != null) {
+      personGrpc.setGender(fr.jufab.grpc.proto.Gender.valueOf(person.getGender().name()));
+    }
+    if (FieldMasks.includes(mask, ADDRESS)) {
+      personGrpc.setAddress(buildAddressGrpc(person.getAddress()));
+    }
+    return FieldMasks.trim(personGrpc.build(), mask);
   }
 
   private fr.jufab.grpc.proto.Address buildAddressGrpc(Address address) {
-    if (address.getId() > 0) {
-      try {
-        address = addressRepository.getAddressById(address.getId()).get();
-      } catch (InterruptedException e) {
-        LOGGER.log(Level.SEVERE, "Error", e);
-      } catch (ExecutionException e) {
-        LOGGER.log(Level.SEVERE, "Error", e);
-      }
+    fr.jufab.grpc.proto.Address.Builder addressGrpc = fr.jufab.grpc.proto.Address.newBuilder()
+        .setId(address.getId());
+    if (address.getStreet() != null) {
+      addressGrpc.setStreet(address.getStreet());
+    }
+    if (address.getZipCode() != null) {
+      addressGrpc.setZipCode(address.getZipCode());
+    }
+    if (address.getCity() != null) {
+      addressGrpc.setCity(address.getCity());
     }
-    return fr.jufab.grpc.proto.Address.newBuilder()
-        .setId(address.getId())
-        .setStreet(address.getStreet())
-        .setZipCode(address.getZipCode())
-        .setCity(address.getCity())
-        .build();
+    return addressGrpc.build();
   }
 }
@@ -0,0 +1,140 @@
+package fr.jufab.grpc.service;
+
+import io.grpc.Status;
+import io.grpc.StatusException;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import io.helidon.common.reactive.Single;
+import io.helidon.metrics.RegistryFactory;
+import java.sql.SQLDataException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.NoSuchElementException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.Tag;
+
+/**
+ * Complete the gRPC calls from the reactive results, without waiting for them.
+ * <p>
+ * A call cancelled by its client, or by its deadline, cancels its reactive result : the queries
+ * stop reading rows and the response is not built.
+ *
+ * @author jufab
+ * @version 1.0
+ */
+final class ReactiveResponses {
+  final static Logger LOGGER = Logger.getLogger(ReactiveResponses.class.getName());
+  static final String CANCELLED_METRIC = "grpc.server.cancelled.work";
+  static final String RESPONSE = "response";
+  static final String STREAM = "stream";
+  static final String LOOKUP = "lookup";
+
+  private ReactiveResponses() {
+  }
+
+  /**
+   * Send the value of {@code response} then complete the call, or fail the call with the status of
+   * its error, NOT_FOUND if it is empty. Must be called in the call handler, to be cancelled with
+   * the call.
+   *
+   * @param responseObserver call to complete
+   * @param response single response of the call
+   */
+  static <T> void complete(StreamObserver<T> responseObserver, Single<T> response) {
+    CancellableSubscriber<T> subscriber =
+        CancellableSubscriber.whenComplete(response, (value, throwable) -> {
+          if (throwable != null) {
+            responseObserver.onError(toStatusException(throwable));
+          } else if (value == null) {
+            responseObserver.onError(Status.NOT_FOUND.withDescription("No value present")
+                .asException());
+          } else {
+            responseObserver.onNext(value);
+            responseObserver.onCompleted();
+          }
+        });
+    if (responseObserver instanceof ServerCallStreamObserver) {
+      ((ServerCallStreamObserver<T>) responseObserver).setOnCancelHandler(() -> {
+        if (subscriber.cancel()) {
+          cancelled(RESPONSE);
+        }
+      });
+    }
+  }
+
+  /**
+   * Count reactive work cancelled before its end because its call was cancelled.
+   *
+   * @param kind {@link #RESPONSE}, {@link #STREAM} or {@link #LOOKUP}
+   */
+  static void cancelled(String kind) {
+    RegistryFactory.getInstance()
+        .getRegistry(MetricRegistry.Type.APPLICATION)
+        .counter(Metadata.builder()
+                .withName(CANCELLED_METRIC)
+                .withDescription("Queries and responses cancelled with their gRPC call")
+                .withType(MetricType.COUNTER)
+                .build(),
+            new Tag("kind", kind))
+        .inc();
+  }
+
+  /**
+   * Status of a failed call, from the first known cause :
+   * <ul>
+   * <li>NOT_FOUND : no row for the requested id</li>
+   * <li>INVALID_ARGUMENT : unknown value in the request or row rejected by a constraint</li>
+   * <li>UNAVAILABLE : database unreachable, pool exhausted or timed out, worth a retry</li>
+   * <li>INTERNAL : any other error</li>
+   * </ul>
+   *
+   * @param throwable error of the call
+   * @return exception to give to {@link StreamObserver#onError(Throwable)}
+   */
+  static StatusException toStatusException(Throwable throwable) {
+    for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+      Status status = status(cause);
+      if (status != null) {
+        return status.withDescription(cause.getMessage()).withCause(throwable).asException();
+      }
+    }
+    LOGGER.log(Level.SEVERE, "Error", throwable);
+    return Status.INTERNAL.withDescription(throwable.getMessage())
+        .withCause(throwable)
+        .asException();
+  }
+
+  private static Status status(Throwable cause) {
+    if (cause instanceof StatusException) {
+      return ((StatusException) cause).getStatus();
+    }
+    if (cause instanceof StatusRuntimeException) {
+      return ((StatusRuntimeException) cause).getStatus();
+    }
+    if (cause instanceof NoSuchElementException) {
+      return Status.NOT_FOUND;
+    }
+    if (cause instanceof IllegalArgumentException
+        || cause instanceof SQLIntegrityConstraintViolationException
+        || cause instanceof SQLDataException) {
+      return Status.INVALID_ARGUMENT;
+    }
+    if (cause instanceof SQLTransientException
+        || cause instanceof SQLNonTransientConnectionException
+        || cause instanceof SQLRecoverableException
+        || cause instanceof TimeoutException
+        || cause instanceof RejectedExecutionException) {
+      return Status.UNAVAILABLE;
+    }
+    return null;
+  }
+}
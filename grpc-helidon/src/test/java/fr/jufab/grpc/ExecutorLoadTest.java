@@ -0,0 +1,254 @@
+package fr.jufab.grpc;
+
+import fr.jufab.database.dto.Address;
+import fr.jufab.database.dto.Gender;
+import fr.jufab.database.dto.Person;
+import fr.jufab.database.id.IdGenerator;
+import fr.jufab.database.repositories.AddressRepository;
+import fr.jufab.database.repositories.PersonRepository;
+import fr.jufab.grpc.interceptor.ExecutorInterceptor;
+import fr.jufab.grpc.proto.PersonServiceGrpc;
+import fr.jufab.grpc.proto.PersonWithAddressToSave;
+import fr.jufab.grpc.proto.QueryPerson;
+import fr.jufab.grpc.service.PersonGrpcService;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.helidon.common.reactive.Multi;
+import io.helidon.config.Config;
+import io.helidon.dbclient.DbClient;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import static io.helidon.config.ConfigSources.classpath;
+import static io.helidon.config.ConfigSources.create;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Throughput and p99 latency of each executor mode, under {@link #CLIENTS} clients calling in a
+ * loop : personById, and {@link #WRITE_PERCENT}% of createPersonWithAddress, on {@link #PERSONS}
+ * persons.
+ * <p>
+ * The in-process transport stands for Netty, its direct executor for the event loops. Run it with
+ * {@code mvn test -Dtest=ExecutorLoadTest -Dload-test=true}, on Java 21 for the virtual mode.
+ * "load-test.clients", "load-test.writes", "load-test.seconds" and "load-test.modes" change the
+ * load. Past the DbClient threads plus the connections of the pool, the queries wait for the
+ * connection timeout : the DbClient threads all wait for a connection while the queries holding
+ * them wait for a thread. The DbClient executor of server.yaml keeps {@link #OVERLOAD_CLIENTS}
+ * clients below it, checked on every build.
+ *
+ * @author jufab
+ * @version 1.0
+ */
+class ExecutorLoadTest {
+  static final Logger LOGGER = Logger.getLogger(ExecutorLoadTest.class.getName());
+  static final int PERSONS = 10_000;
+  static final int CLIENTS = Integer.getInteger("load-test.clients", 16);
+  static final int WRITE_PERCENT = Integer.getInteger("load-test.writes", 10);
+  static final long WARMUP_SECONDS = 3;
+  static final long MEASURE_SECONDS = Long.getLong("load-test.seconds", 10);
+  static final int OVERLOAD_CLIENTS = 32;
+  static final int OVERLOAD_CALLS = 50;
+  // under the 30 s connection timeout of the pool
+  static final long OVERLOAD_DEADLINE_SECONDS = 10;
+
+  static Config config;
+
+  static PersonRepository personRepository;
+  static AddressRepository addressRepository;
+
+  @BeforeAll
+  static void seed() {
+    config = Config.builder()
+        .sources(List.of(create(Map.of("db.connection.url", "jdbc:h2:mem:load-test")),
+            classpath("server.yaml"),
+            classpath("db.yaml"),
+            classpath("statements.yaml")))
+        .disableEnvironmentVariablesSource()
+        .disableSystemPropertiesSource()
+        .build();
+    DbClient dbClient = DbClient.builder(config.get("db")).build();
+    for (String statement : new String[] {"create-address", "create-sequence-address",
+        "create-person", "add-person-firstname-upper", "create-index-person-firstname",
+        "create-index-person-firstname-upper", "create-sequence-person"}) {
+      dbClient.execute(dbExecute -> dbExecute.namedDml(statement)).await();
+    }
+    addressRepository = new AddressRepository(dbClient,
+        IdGenerator.create(dbClient, AddressRepository.SEQUENCE));
+    personRepository = new PersonRepository(dbClient, addressRepository,
+        IdGenerator.create(dbClient, PersonRepository.SEQUENCE));
+    personRepository.createPersons(Multi.range(0, PERSONS)
+        .map(i -> new Person("firstname" + i, "lastname" + i, 20 + i % 60,
+            new Address("street " + i, "zipCode", "city"), Gender.MAN)), 1000)
+        .forEach(saved -> {
+        })
+        .await();
+  }
+
+  @Test
+  void shouldServeTwiceThePoolOfClientsWithoutTheConnectionTimeout() throws Exception {
+    Server server = InProcessServerBuilder.forName("overload")
+        .directExecutor()
+        .addService(new PersonGrpcService(personRepository))
+        .build()
+        .start();
+    ManagedChannel channel = InProcessChannelBuilder.forName("overload").directExecutor().build();
+    ExecutorService clients = Executors.newFixedThreadPool(OVERLOAD_CLIENTS);
+    Map<Status.Code, AtomicLong> codes = new EnumMap<>(Status.Code.class);
+    for (Status.Code code : Status.Code.values()) {
+      codes.put(code, new AtomicLong());
+    }
+    try {
+      PersonServiceGrpc.PersonServiceBlockingStub stub = PersonServiceGrpc.newBlockingStub(channel);
+      long start = System.nanoTime();
+      Future<?>[] runs = new Future<?>[OVERLOAD_CLIENTS];
+      for (int client = 0; client < OVERLOAD_CLIENTS; client++) {
+        runs[client] = clients.submit(() -> {
+          for (int call = 0; call < OVERLOAD_CALLS; call++) {
+            codes.get(call(stub.withDeadlineAfter(OVERLOAD_DEADLINE_SECONDS, TimeUnit.SECONDS),
+                call % 10 == 0)).incrementAndGet();
+          }
+        });
+      }
+      for (Future<?> run : runs) {
+        run.get();
+      }
+      LOGGER.info(() -> String.format("%d clients : %d ms, %d OK",
+          OVERLOAD_CLIENTS, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+          codes.get(Status.Code.OK).get()));
+    } finally {
+      clients.shutdownNow();
+      channel.shutdownNow();
+      server.shutdownNow();
+    }
+    // no call waits for a connection until its deadline
+    assertThat(codes.get(Status.Code.OK).get()).isEqualTo(OVERLOAD_CLIENTS * OVERLOAD_CALLS);
+  }
+
+  /**
+   * @return status of the call
+   */
+  private static Status.Code call(PersonServiceGrpc.PersonServiceBlockingStub stub,
+      boolean write) {
+    try {
+      if (write) {
+        stub.createPersonWithAddress(PersonWithAddressToSave.newBuilder()
+            .setFirstname("overload")
+            .setLastname("test")
+            .setAge(30)
+            .setStreet("street")
+            .setZipCode("zipCode")
+            .setCity("city")
+            .build());
+      } else {
+        stub.personById(QueryPerson.newBuilder()
+            .setId(1 + ThreadLocalRandom.current().nextInt(PERSONS)).build());
+      }
+      return Status.Code.OK;
+    } catch (StatusRuntimeException e) {
+      return e.getStatus().getCode();
+    }
+  }
+
+  @Test
+  @EnabledIfSystemProperty(named = "load-test", matches = "true")
+  void shouldCompareTheExecutorModes() throws Exception {
+    // JIT warm-up of the client, service and repositories, not to favour the later modes
+    load(ExecutorInterceptor.create(Config.empty()));
+    StringBuilder report = new StringBuilder("\nmode     calls/s   p99 ms");
+    for (String mode : System.getProperty("load-test.modes", "direct,pools,virtual").split(",")) {
+      ExecutorInterceptor executorInterceptor =
+          ExecutorInterceptor.create(Config.just(create(Map.of("mode", mode))));
+      if (!executorInterceptor.getMode().name().equalsIgnoreCase(mode)) {
+        report.append(String.format("%n%-8s unavailable on this runtime", mode));
+        continue;
+      }
+      long[] latencies = load(executorInterceptor);
+      assertThat(latencies).isNotEmpty();
+      Arrays.sort(latencies);
+      report.append(String.format("%n%-8s %7d %8.2f", mode, latencies.length / MEASURE_SECONDS,
+          latencies[(int) (latencies.length * 0.99)] / 1_000_000.0));
+    }
+    LOGGER.info(report.toString());
+  }
+
+  /**
+   * @return latencies in nanoseconds of the calls of the measure
+   */
+  private long[] load(ExecutorInterceptor executorInterceptor) throws Exception {
+    String name = "load-" + executorInterceptor.getMode();
+    Server server = InProcessServerBuilder.forName(name)
+        .directExecutor()
+        .addService(ServerInterceptors.intercept(
+            new PersonGrpcService(personRepository), executorInterceptor))
+        .build()
+        .start();
+    ManagedChannel channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+    ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+    try {
+      PersonServiceGrpc.PersonServiceBlockingStub stub = PersonServiceGrpc.newBlockingStub(channel);
+      long measureStart = System.nanoTime() + TimeUnit.SECONDS.toNanos(WARMUP_SECONDS);
+      long measureEnd = measureStart + TimeUnit.SECONDS.toNanos(MEASURE_SECONDS);
+      Future<?>[] runs = new Future<?>[CLIENTS];
+      long[][] clientLatencies = new long[CLIENTS][];
+      for (int client = 0; client < CLIENTS; client++) {
+        int index = client;
+        runs[client] = clients.submit(() -> {
+          clientLatencies[index] = callInLoop(stub, measureStart, measureEnd);
+        });
+      }
+      for (Future<?> run : runs) {
+        run.get();
+      }
+      return Arrays.stream(clientLatencies).flatMapToLong(Arrays::stream).toArray();
+    } finally {
+      clients.shutdownNow();
+      channel.shutdownNow();
+      server.shutdownNow();
+    }
+  }
+
+  private static long[] callInLoop(PersonServiceGrpc.PersonServiceBlockingStub stub,
+      long measureStart, long measureEnd) {
+    long[] latencies = new long[1024];
+    int count = 0;
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    for (long start = System.nanoTime(); start < measureEnd; start = System.nanoTime()) {
+      if (random.nextInt(100) < WRITE_PERCENT) {
+        stub.createPersonWithAddress(PersonWithAddressToSave.newBuilder()
+            .setFirstname("load")
+            .setLastname("test")
+            .setAge(30)
+            .setStreet("street")
+            .setZipCode("zipCode")
+            .setCity("city")
+            .build());
+      } else {
+        stub.personById(QueryPerson.newBuilder().setId(1 + random.nextInt(PERSONS)).build());
+      }
+      if (start >= measureStart) {
+        if (count == latencies.length) {
+          latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = System.nanoTime() - start;
+      }
+    }
+    return Arrays.copyOf(latencies, count);
+  }
+}
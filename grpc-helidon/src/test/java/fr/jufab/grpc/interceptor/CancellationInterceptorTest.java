@@ -0,0 +1,72 @@
+package fr.jufab.grpc.interceptor;
+
+import fr.jufab.grpc.proto.Address;
+import fr.jufab.grpc.proto.AddressServiceGrpc;
+import fr.jufab.grpc.proto.QueryAddress;
+import io.grpc.Context;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.helidon.metrics.Registry;
+import org.eclipse.microprofile.metrics.MetricID;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CancellationInterceptorTest {
+  static final MetricID SKIPPED = new MetricID(CancellationInterceptor.SKIPPED,
+      new Tag("method", AddressServiceGrpc.METHOD_ADDRESS_BY_ID.getFullMethodName()));
+  @Mock
+  ServerCall<QueryAddress, Address> call;
+  @Mock
+  ServerCallHandler<QueryAddress, Address> next;
+  @Mock
+  ServerCall.Listener<QueryAddress> listener;
+
+  MetricRegistry registry;
+  CancellationInterceptor cancellationInterceptor;
+
+  @BeforeEach
+  void initTest() {
+    registry = Registry.create(MetricRegistry.Type.APPLICATION);
+    cancellationInterceptor = new CancellationInterceptor(registry);
+    when(call.getMethodDescriptor()).thenReturn(AddressServiceGrpc.METHOD_ADDRESS_BY_ID);
+  }
+
+  @Test
+  void shouldNotStartACallAlreadyCancelled() {
+    Context.CancellableContext context = Context.current().withCancellation();
+    context.cancel(null);
+
+    context.run(() -> cancellationInterceptor.interceptCall(call, new Metadata(), next));
+
+    verify(next, never()).startCall(any(), any());
+    assertThat(registry.getCounters().get(SKIPPED).getCount()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldNotRunTheHandlerOfACallCancelledWhileQueued() throws Exception {
+    when(next.startCall(any(), any())).thenReturn(listener);
+    Context.CancellableContext context = Context.current().withCancellation();
+    ServerCall.Listener<QueryAddress> intercepted = context.call(
+        () -> cancellationInterceptor.interceptCall(call, new Metadata(), next));
+
+    context.run(intercepted::onHalfClose);
+    context.cancel(null);
+    context.run(intercepted::onHalfClose);
+
+    verify(listener).onHalfClose();
+    assertThat(registry.getCounters().get(SKIPPED).getCount()).isEqualTo(1);
+  }
+}
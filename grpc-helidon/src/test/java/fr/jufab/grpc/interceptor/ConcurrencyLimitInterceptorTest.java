@@ -0,0 +1,105 @@
+package fr.jufab.grpc.interceptor;
+
+import fr.jufab.grpc.proto.Address;
+import fr.jufab.grpc.proto.AddressServiceGrpc;
+import fr.jufab.grpc.proto.QueryAddress;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.Status;
+import io.helidon.metrics.Registry;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.microprofile.metrics.MetricID;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class ConcurrencyLimitInterceptorTest {
+  static final Tag SERVICE = new Tag("service", "AddressService");
+  @Mock
+  ServerCall<QueryAddress, Address> call;
+  @Mock
+  ServerCallHandler<QueryAddress, Address> next;
+  @Mock
+  ServerCall.Listener<QueryAddress> listener;
+
+  MetricRegistry registry;
+  ConcurrencyLimitInterceptor concurrencyLimitInterceptor;
+
+  @BeforeEach
+  void initTest() {
+    registry = Registry.create(MetricRegistry.Type.APPLICATION);
+    concurrencyLimitInterceptor = new ConcurrencyLimitInterceptor(registry, 2, 1, 3, 0.5, 500);
+    lenient().when(call.getMethodDescriptor()).thenReturn(AddressServiceGrpc.METHOD_ADDRESS_BY_ID);
+    lenient().when(next.startCall(any(), any())).thenReturn(listener);
+  }
+
+  @Test
+  void shouldRejectTheCallsOverTheLimit() {
+    concurrencyLimitInterceptor.interceptCall(call, new Metadata(), next);
+    concurrencyLimitInterceptor.interceptCall(call, new Metadata(), next);
+    concurrencyLimitInterceptor.interceptCall(call, new Metadata(), next);
+
+    verify(next, times(2)).startCall(any(), any());
+    ArgumentCaptor<Status> status = ArgumentCaptor.forClass(Status.class);
+    verify(call).close(status.capture(), any());
+    assertThat(status.getValue().getCode()).isEqualTo(Status.Code.RESOURCE_EXHAUSTED);
+    assertThat(registry.getCounters()
+        .get(new MetricID(ConcurrencyLimitInterceptor.REJECTED, SERVICE)).getCount())
+        .isEqualTo(1);
+  }
+
+  @Test
+  void shouldRaiseTheLimitOnFastCallsAndLowerItOnSlowOnes() {
+    ConcurrencyLimitInterceptor.Limit limit = concurrencyLimitInterceptor.new Limit("test");
+    assertThat(limit.tryAcquire()).isTrue();
+    assertThat(limit.tryAcquire()).isTrue();
+    limit.release(true, Status.Code.OK, TimeUnit.MILLISECONDS.toNanos(10));
+    assertThat(limit.getLimit()).isEqualTo(3);
+
+    limit.release(true, Status.Code.OK, TimeUnit.SECONDS.toNanos(1));
+    assertThat(limit.getLimit()).isEqualTo(1);
+    assertThat(limit.tryAcquire()).isTrue();
+    assertThat(limit.tryAcquire()).isFalse();
+    limit.release(true, Status.Code.UNAVAILABLE, TimeUnit.MILLISECONDS.toNanos(10));
+    assertThat(limit.getLimit()).isEqualTo(1);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void shouldReleaseTheSlotOfAClosedCallOnce() {
+    ServerCall.Listener<QueryAddress> limited =
+        concurrencyLimitInterceptor.interceptCall(call, new Metadata(), next);
+    ArgumentCaptor<ServerCall<QueryAddress, Address>> started =
+        ArgumentCaptor.forClass(ServerCall.class);
+    verify(next).startCall(started.capture(), any());
+    started.getValue().close(Status.OK, new Metadata());
+    limited.onCancel();
+
+    concurrencyLimitInterceptor.interceptCall(call, new Metadata(), next);
+    concurrencyLimitInterceptor.interceptCall(call, new Metadata(), next);
+
+    verify(next, times(3)).startCall(any(), any());
+    assertThat(registry.getGauges().get(new MetricID(ConcurrencyLimitInterceptor.LIMIT, SERVICE))
+        .getValue()).isEqualTo(3);
+  }
+
+  @Test
+  void shouldRefuseInvalidLimits() {
+    assertThatThrownBy(() -> new ConcurrencyLimitInterceptor(registry, 10, 20, 30, 0.9, 500))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
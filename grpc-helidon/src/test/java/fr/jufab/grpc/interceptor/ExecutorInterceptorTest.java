@@ -0,0 +1,121 @@
+package fr.jufab.grpc.interceptor;
+
+import fr.jufab.grpc.proto.Address;
+import fr.jufab.grpc.proto.AddressServiceGrpc;
+import fr.jufab.grpc.proto.QueryAddress;
+import io.grpc.Context;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.helidon.config.Config;
+import io.helidon.config.ConfigSources;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ExecutorInterceptorTest {
+  static final Context.Key<String> KEY = Context.key("test");
+  ExecutorService reads =
+      Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "read"));
+  ExecutorService writes =
+      Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "write"));
+  List<String> events = new CopyOnWriteArrayList<>();
+  @Mock
+  ServerCallHandler<QueryAddress, Address> next;
+
+  @AfterEach
+  void shutdown() {
+    reads.shutdownNow();
+    writes.shutdownNow();
+  }
+
+  @Test
+  void shouldStartTheHandlersOnTheGrpcThreadInDirectMode() {
+    ExecutorInterceptor executorInterceptor = ExecutorInterceptor.create(Config.empty());
+    ServerCall.Listener<QueryAddress> listener = mock(ServerCall.Listener.class);
+    when(next.startCall(any(), any())).thenReturn(listener);
+
+    assertThat(executorInterceptor.getMode()).isEqualTo(ExecutorInterceptor.Mode.DIRECT);
+    assertThat(executorInterceptor.interceptCall(mock(ServerCall.class), new Metadata(), next))
+        .isSameAs(listener);
+  }
+
+  @Test
+  void shouldRunTheCallbacksInOrderOnTheReadPoolWithTheirContext() throws Exception {
+    ServerCall.Listener<QueryAddress> listener = intercept(AddressServiceGrpc.METHOD_ADDRESS_BY_ID);
+
+    Context.current().withValue(KEY, "call").run(() -> {
+      listener.onMessage(QueryAddress.getDefaultInstance());
+      listener.onHalfClose();
+      listener.onComplete();
+    });
+    reads.submit(() -> { }).get(1, TimeUnit.SECONDS);
+
+    assertThat(events).containsExactly("message on read in call", "halfClose on read in call",
+        "complete on read in call");
+  }
+
+  @Test
+  void shouldRunTheWritesOnTheWritePool() throws Exception {
+    ServerCall.Listener<QueryAddress> listener =
+        intercept(AddressServiceGrpc.METHOD_CREATE_ADDRESS);
+
+    listener.onHalfClose();
+    writes.submit(() -> { }).get(1, TimeUnit.SECONDS);
+
+    assertThat(events).containsExactly("halfClose on write in null");
+  }
+
+  @Test
+  void shouldUseThePoolsWithoutVirtualThreads() {
+    ExecutorInterceptor executorInterceptor = ExecutorInterceptor.create(
+        Config.just(ConfigSources.create(Map.of("mode", "virtual"))));
+
+    assertThat(executorInterceptor.getMode()).isEqualTo(
+        ExecutorInterceptor.virtualThreadPerTaskExecutor() == null
+            ? ExecutorInterceptor.Mode.POOLS : ExecutorInterceptor.Mode.VIRTUAL);
+  }
+
+  @SuppressWarnings("unchecked")
+  private ServerCall.Listener<QueryAddress> intercept(MethodDescriptor<?, ?> method) {
+    ExecutorInterceptor executorInterceptor = new ExecutorInterceptor(
+        ExecutorInterceptor.Mode.POOLS, reads, writes,
+        descriptor -> descriptor.getFullMethodName().endsWith("createAddress"));
+    ServerCall<QueryAddress, Address> call = mock(ServerCall.class);
+    when(call.getMethodDescriptor())
+        .thenReturn((MethodDescriptor<QueryAddress, Address>) method);
+    when(next.startCall(any(), any())).thenReturn(new ServerCall.Listener<>() {
+      @Override public void onMessage(QueryAddress message) {
+        event("message");
+      }
+
+      @Override public void onHalfClose() {
+        event("halfClose");
+      }
+
+      @Override public void onComplete() {
+        event("complete");
+      }
+    });
+    return executorInterceptor.interceptCall(call, new Metadata(), next);
+  }
+
+  private void event(String callback) {
+    events.add(callback + " on " + Thread.currentThread().getName() + " in " + KEY.get());
+  }
+}
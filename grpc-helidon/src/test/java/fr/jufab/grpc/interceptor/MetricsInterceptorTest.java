@@ -0,0 +1,105 @@
+package fr.jufab.grpc.interceptor;
+
+import fr.jufab.grpc.proto.Address;
+import fr.jufab.grpc.proto.AddressServiceGrpc;
+import fr.jufab.grpc.proto.QueryAddress;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.Status;
+import io.helidon.metrics.Registry;
+import org.eclipse.microprofile.metrics.MetricID;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MetricsInterceptorTest {
+  static final Tag METHOD = new Tag("method",
+      AddressServiceGrpc.METHOD_ADDRESS_BY_ID.getFullMethodName());
+  @Mock
+  ServerCall<QueryAddress, Address> call;
+  @Mock
+  ServerCallHandler<QueryAddress, Address> next;
+  @Mock
+  ServerCall.Listener<QueryAddress> listener;
+
+  MetricRegistry registry;
+  MetricsInterceptor metricsInterceptor;
+
+  @BeforeEach
+  void initTest() {
+    registry = Registry.create(MetricRegistry.Type.APPLICATION);
+    metricsInterceptor = new MetricsInterceptor(registry);
+    when(call.getMethodDescriptor()).thenReturn(AddressServiceGrpc.METHOD_ADDRESS_BY_ID);
+    when(next.startCall(any(), any())).thenReturn(listener);
+  }
+
+  @Test
+  void shouldRecordTheDurationSizesAndStatusOfACall() {
+    ServerCall.Listener<QueryAddress> monitored =
+        metricsInterceptor.interceptCall(call, new Metadata(), next);
+    ServerCall<QueryAddress, Address> monitoredCall = startedCall();
+    assertThat(inFlight()).isEqualTo(1);
+
+    QueryAddress request = QueryAddress.newBuilder().setId(1).build();
+    monitored.onMessage(request);
+    Address response = Address.newBuilder().setId(1).setCity("city").build();
+    monitoredCall.sendMessage(response);
+    monitoredCall.close(Status.OK, new Metadata());
+    monitored.onComplete();
+
+    verify(listener).onMessage(request);
+    verify(call).sendMessage(response);
+    assertThat(inFlight()).isZero();
+    assertThat(registry.getTimers().get(new MetricID(MetricsInterceptor.DURATION, METHOD))
+        .getCount()).isEqualTo(1);
+    assertThat(registry.getHistograms().get(new MetricID(MetricsInterceptor.REQUEST_SIZE, METHOD))
+        .getSnapshot().getMax()).isEqualTo(request.getSerializedSize());
+    assertThat(registry.getHistograms().get(new MetricID(MetricsInterceptor.RESPONSE_SIZE, METHOD))
+        .getSnapshot().getMax()).isEqualTo(response.getSerializedSize());
+    assertThat(registry.getCounters().get(
+        new MetricID(MetricsInterceptor.CALLS, METHOD, new Tag("code", "OK"))).getCount())
+        .isEqualTo(1);
+  }
+
+  @Test
+  void shouldCountACancelledCallOnce() {
+    ServerCall.Listener<QueryAddress> monitored =
+        metricsInterceptor.interceptCall(call, new Metadata(), next);
+    ServerCall<QueryAddress, Address> monitoredCall = startedCall();
+
+    monitored.onCancel();
+    monitoredCall.close(Status.CANCELLED, new Metadata());
+
+    verify(listener).onCancel();
+    assertThat(inFlight()).isZero();
+    assertThat(registry.getCounters().get(
+        new MetricID(MetricsInterceptor.CALLS, METHOD, new Tag("code", "CANCELLED"))).getCount())
+        .isEqualTo(1);
+  }
+
+  private long inFlight() {
+    return registry.getConcurrentGauges()
+        .get(new MetricID(MetricsInterceptor.IN_FLIGHT, METHOD))
+        .getCount();
+  }
+
+  @SuppressWarnings("unchecked")
+  private ServerCall<QueryAddress, Address> startedCall() {
+    ArgumentCaptor<ServerCall<QueryAddress, Address>> captor =
+        ArgumentCaptor.forClass(ServerCall.class);
+    verify(next).startCall(captor.capture(), any());
+    return captor.getValue();
+  }
+}
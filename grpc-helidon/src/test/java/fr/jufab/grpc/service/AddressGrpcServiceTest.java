@@ -3,9 +3,17 @@ package fr.jufab.grpc.service;
 import fr.jufab.database.dto.Address;
 import fr.jufab.database.repositories.AddressRepository;
 import fr.jufab.grpc.proto.AddressToSave;
+import fr.jufab.grpc.proto.Addresses;
 import fr.jufab.grpc.proto.QueryAddress;
+import fr.jufab.grpc.proto.QueryAddresses;
+import io.grpc.Status;
+import io.grpc.StatusException;
 import io.grpc.stub.StreamObserver;
 import io.helidon.common.reactive.Single;
+import io.helidon.dbclient.DbClientException;
+import java.sql.SQLTransientConnectionException;
+import java.util.List;
+import java.util.Map;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -16,6 +24,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -29,6 +38,8 @@ class AddressGrpcServiceTest {
   AddressRepository addressRepository;
   @Mock
   StreamObserver<fr.jufab.grpc.proto.Address> addressStreamObserver;
+  @Mock
+  StreamObserver<Addresses> addressesStreamObserver;
   @InjectMocks
   AddressGrpcService addressGrpcService;
 
@@ -84,4 +95,41 @@ class AddressGrpcServiceTest {
         .hasFieldOrPropertyWithValue("street", STREET)
         .hasFieldOrPropertyWithValue("zipCode", ZIP_CODE);
   }
-}
\ No newline at end of file
+
+  @Test
+  void shouldReturnAddressesByIdsAndTheMissingIds() {
+    when(addressRepository.getAddressesByIds(List.of(ID, 2)))
+        .thenReturn(Single.just(Map.of(ID, address)));
+    QueryAddresses queryAddresses = QueryAddresses.newBuilder()
+        .addIds(ID).addIds(2).addIds(ID)
+        .build();
+
+    addressGrpcService.addressesByIds(queryAddresses, addressesStreamObserver);
+
+    verify(addressesStreamObserver).onNext(Addresses.newBuilder()
+        .addAddresses(fr.jufab.grpc.proto.Address.newBuilder()
+            .setId(ID)
+            .setStreet(STREET)
+            .setZipCode(ZIP_CODE)
+            .setCity(CITY))
+        .addMissingIds(2)
+        .build());
+    verify(addressesStreamObserver).onCompleted();
+  }
+
+  @Test
+  void shouldFailAsUnavailableWhenTheDatabaseIsUnreachable() {
+    when(addressRepository.getAddressById(ID)).thenReturn(Single.error(new DbClientException(
+        "Failed to get a connection", new SQLTransientConnectionException("timeout"))));
+    QueryAddress queryAddress = QueryAddress.newBuilder().setId(ID).build();
+
+    addressGrpcService.addressById(queryAddress, addressStreamObserver);
+
+    ArgumentCaptor<Throwable> captor = ArgumentCaptor.forClass(Throwable.class);
+    verify(addressStreamObserver).onError(captor.capture());
+    verify(addressStreamObserver, never()).onCompleted();
+    assertThat(captor.getValue()).isInstanceOf(StatusException.class);
+    assertThat(((StatusException) captor.getValue()).getStatus().getCode())
+        .isEqualTo(Status.Code.UNAVAILABLE);
+  }
+}
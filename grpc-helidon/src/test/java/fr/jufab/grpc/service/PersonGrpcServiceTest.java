@@ -1,15 +1,29 @@
 package fr.jufab.grpc.service;
 
+import com.google.protobuf.FieldMask;
 import fr.jufab.database.dto.Address;
 import fr.jufab.database.dto.Gender;
 import fr.jufab.database.dto.Person;
-import fr.jufab.database.repositories.AddressRepository;
+import fr.jufab.database.repositories.PersonProjection;
 import fr.jufab.database.repositories.PersonRepository;
+import fr.jufab.grpc.proto.BulkCreateResult;
 import fr.jufab.grpc.proto.PersonWithAddressToSave;
 import fr.jufab.grpc.proto.QueryPerson;
+import io.grpc.Status;
+import io.grpc.StatusException;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import io.helidon.common.reactive.Multi;
 import io.helidon.common.reactive.Single;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -19,8 +33,14 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -33,13 +53,15 @@ class PersonGrpcServiceTest {
   public static final String ZIP_CODE = "zipCode";
   public static final String CITY = "city";
   @Mock
-  AddressRepository addressRepository;
-  @Mock
   PersonRepository personRepository;
   @Mock
   StreamObserver<fr.jufab.grpc.proto.Person> personStreamObserver;
   @Mock
   StreamObserver<fr.jufab.grpc.proto.Persons> personsStreamObserver;
+  @Mock
+  ServerCallStreamObserver<fr.jufab.grpc.proto.Person> personServerCallObserver;
+  @Mock
+  ServerCallStreamObserver<BulkCreateResult> bulkCreateResultObserver;
   @InjectMocks
   PersonGrpcService personGrpcService;
 
@@ -61,8 +83,7 @@ class PersonGrpcServiceTest {
 
   @Test
   void shouldReturnAPersonWithId() throws Exception {
-    when(personRepository.getPersonById(ID)).thenReturn(Single.just(person));
-    when(addressRepository.getAddressById(ID)).thenReturn(Single.just(address));
+    when(personRepository.getPersonById(ID, PersonProjection.ALL)).thenReturn(Single.just(person));
     QueryPerson queryPerson = QueryPerson.newBuilder().setId(ID).build();
 
     personGrpcService.personById(queryPerson, personStreamObserver);
@@ -82,8 +103,7 @@ class PersonGrpcServiceTest {
 
   @Test
   void shouldReturnPersons() throws Exception {
-    when(personRepository.getPersons()).thenReturn(Multi.just(person));
-    when(addressRepository.getAddressById(ID)).thenReturn(Single.just(address));
+    when(personRepository.getPersons(PersonProjection.ALL)).thenReturn(Multi.just(person));
     QueryPerson queryPerson = QueryPerson.newBuilder().setId(ID).build();
 
     personGrpcService.persons(queryPerson, personsStreamObserver);
@@ -114,8 +134,8 @@ class PersonGrpcServiceTest {
 
   @Test
   void shouldReturnAPersonByFirstName() throws Exception {
-    when(personRepository.getPersonsByFirstName(FIRSTNAME)).thenReturn(Multi.just(person));
-    when(addressRepository.getAddressById(ID)).thenReturn(Single.just(address));
+    when(personRepository.getPersonsByFirstName(FIRSTNAME, PersonProjection.ALL))
+        .thenReturn(Multi.just(person));
     QueryPerson queryPerson = QueryPerson.newBuilder().setFirstname(FIRSTNAME).build();
 
     personGrpcService.personsByFirstName(queryPerson, personsStreamObserver);
@@ -147,7 +167,6 @@ class PersonGrpcServiceTest {
   @Test
   void shouldSaveAPersonWithAnAddress() throws Exception {
     when(personRepository.createPerson(any(Person.class))).thenReturn(Single.just(person));
-    when(addressRepository.getAddressById(ID)).thenReturn(Single.just(address));
 
     PersonWithAddressToSave personWithAddressToSave = PersonWithAddressToSave.newBuilder()
         .setFirstname(FIRSTNAME)
@@ -185,4 +204,321 @@ class PersonGrpcServiceTest {
         .isNotNull()
         .isEqualTo(personTest);
   }
-}
\ No newline at end of file
+
+  @Test
+  void shouldStreamPersonsWhenTheCallIsReady() {
+    when(personRepository.getPersonsByFirstName(FIRSTNAME, PersonProjection.ALL))
+        .thenReturn(Multi.just(person, person));
+    when(personServerCallObserver.isReady()).thenReturn(false);
+    QueryPerson queryPerson = QueryPerson.newBuilder().setFirstname(FIRSTNAME).build();
+
+    personGrpcService.streamPersonsByFirstName(queryPerson, personServerCallObserver);
+
+    ArgumentCaptor<Runnable> onReady = ArgumentCaptor.forClass(Runnable.class);
+    verify(personServerCallObserver).setOnReadyHandler(onReady.capture());
+    verify(personServerCallObserver, never()).onNext(any());
+
+    when(personServerCallObserver.isReady()).thenReturn(true);
+    onReady.getValue().run();
+
+    ArgumentCaptor<fr.jufab.grpc.proto.Person> captor =
+        ArgumentCaptor.forClass(fr.jufab.grpc.proto.Person.class);
+    verify(personServerCallObserver, times(2)).onNext(captor.capture());
+    verify(personServerCallObserver).onCompleted();
+    assertThat(captor.getValue())
+        .hasFieldOrPropertyWithValue("firstname", FIRSTNAME)
+        .hasFieldOrPropertyWithValue("lastname", LASTNAME);
+  }
+
+  @Test
+  void shouldStopStreamingPersonsWhenTheCallIsCancelled() {
+    when(personRepository.getPersons(PersonProjection.ALL)).thenReturn(Multi.just(person));
+    QueryPerson queryPerson = QueryPerson.newBuilder().build();
+
+    personGrpcService.streamPersons(queryPerson, personServerCallObserver);
+
+    ArgumentCaptor<Runnable> onReady = ArgumentCaptor.forClass(Runnable.class);
+    ArgumentCaptor<Runnable> onCancel = ArgumentCaptor.forClass(Runnable.class);
+    verify(personServerCallObserver).setOnReadyHandler(onReady.capture());
+    verify(personServerCallObserver).setOnCancelHandler(onCancel.capture());
+    onCancel.getValue().run();
+    lenient().when(personServerCallObserver.isReady()).thenReturn(true);
+    onReady.getValue().run();
+
+    verify(personServerCallObserver, never()).onNext(any());
+    verify(personServerCallObserver, never()).onCompleted();
+  }
+
+  @Test
+  void shouldCancelTheQueryWhenTheCallIsCancelled() {
+    AtomicBoolean queryCancelled = new AtomicBoolean();
+    when(personRepository.getPersonById(ID, PersonProjection.ALL))
+        .thenReturn(Single.<Person>never().onCancel(() -> queryCancelled.set(true)));
+    QueryPerson queryPerson = QueryPerson.newBuilder().setId(ID).build();
+
+    personGrpcService.personById(queryPerson, personServerCallObserver);
+
+    ArgumentCaptor<Runnable> onCancel = ArgumentCaptor.forClass(Runnable.class);
+    verify(personServerCallObserver).setOnCancelHandler(onCancel.capture());
+    onCancel.getValue().run();
+
+    assertThat(queryCancelled).isTrue();
+    verify(personServerCallObserver, never()).onNext(any());
+    verify(personServerCallObserver, never()).onError(any());
+  }
+
+  @Test
+  void shouldFailAsNotFoundForAnUnknownId() {
+    when(personRepository.getPersonById(ID, PersonProjection.ALL))
+        .thenReturn(Single.error(new NoSuchElementException("No value present")));
+    QueryPerson queryPerson = QueryPerson.newBuilder().setId(ID).build();
+
+    personGrpcService.personById(queryPerson, personStreamObserver);
+
+    assertThat(errorCode(personStreamObserver)).isEqualTo(Status.Code.NOT_FOUND);
+    verify(personStreamObserver, never()).onCompleted();
+  }
+
+  @Test
+  void shouldFailAsNotFoundForAnEmptyResult() {
+    when(personRepository.getPersonById(ID, PersonProjection.ALL)).thenReturn(Single.empty());
+    QueryPerson queryPerson = QueryPerson.newBuilder().setId(ID).build();
+
+    personGrpcService.personById(queryPerson, personStreamObserver);
+
+    assertThat(errorCode(personStreamObserver)).isEqualTo(Status.Code.NOT_FOUND);
+    verify(personStreamObserver, never()).onNext(any());
+    verify(personStreamObserver, never()).onCompleted();
+  }
+
+  @Test
+  void shouldFailAsInvalidArgumentForAnUnknownGender() {
+    PersonWithAddressToSave personWithAddressToSave = PersonWithAddressToSave.newBuilder()
+        .setFirstname(FIRSTNAME)
+        .setGenderValue(42)
+        .build();
+
+    personGrpcService.createPersonWithAddress(personWithAddressToSave, personStreamObserver);
+
+    assertThat(errorCode(personStreamObserver)).isEqualTo(Status.Code.INVALID_ARGUMENT);
+    verify(personRepository, never()).createPerson(any());
+  }
+
+  @Test
+  void shouldSaveStreamedPersonsAndAnswerTheirIds() {
+    AtomicInteger ids = new AtomicInteger();
+    when(personRepository.createPersons(any())).thenAnswer(invocation ->
+        invocation.<Multi<Person>>getArgument(0).map(saving -> {
+          saving.setId(ids.incrementAndGet());
+          return saving;
+        }));
+    PersonWithAddressToSave personWithAddressToSave = PersonWithAddressToSave.newBuilder()
+        .setFirstname(FIRSTNAME)
+        .setLastname(LASTNAME)
+        .setAge(AGE)
+        .setGender(fr.jufab.grpc.proto.Gender.MAN)
+        .setStreet(STREET)
+        .setZipCode(ZIP_CODE)
+        .setCity(CITY)
+        .build();
+
+    StreamObserver<PersonWithAddressToSave> requestObserver =
+        personGrpcService.createPersons(bulkCreateResultObserver);
+    requestObserver.onNext(personWithAddressToSave);
+    requestObserver.onNext(personWithAddressToSave);
+    requestObserver.onNext(personWithAddressToSave);
+    requestObserver.onCompleted();
+
+    verify(bulkCreateResultObserver).disableAutoRequest();
+    verify(bulkCreateResultObserver).request(anyInt());
+    verify(bulkCreateResultObserver).onNext(
+        BulkCreateResult.newBuilder().setCount(3).addIds(1).addIds(2).addIds(3).build());
+    verify(bulkCreateResultObserver).onCompleted();
+  }
+
+  @Test
+  void shouldLookupPersonsByBatchesAndTagTheAnswers() {
+    when(personRepository.getPersonsByIdsWithAddress(any()))
+        .thenReturn(Single.just(Map.of(ID, person)));
+    personGrpcService.lookupBatching(2, TimeUnit.MINUTES.toMillis(1));
+
+    StreamObserver<QueryPerson> requestObserver =
+        personGrpcService.lookupPersons(personStreamObserver);
+    requestObserver.onNext(QueryPerson.newBuilder().setId(ID).setTag("a").build());
+    verify(personStreamObserver, never()).onNext(any());
+    requestObserver.onNext(QueryPerson.newBuilder().setId(2).setTag("b").build());
+    requestObserver.onNext(QueryPerson.newBuilder().setId(ID).setTag("c").build());
+    requestObserver.onCompleted();
+
+    verify(personRepository).getPersonsByIdsWithAddress(List.of(ID, 2));
+    verify(personRepository).getPersonsByIdsWithAddress(List.of(ID));
+    ArgumentCaptor<fr.jufab.grpc.proto.Person> captor =
+        ArgumentCaptor.forClass(fr.jufab.grpc.proto.Person.class);
+    verify(personStreamObserver, times(3)).onNext(captor.capture());
+    verify(personStreamObserver).onCompleted();
+    assertThat(captor.getAllValues())
+        .extracting(fr.jufab.grpc.proto.Person::getTag, fr.jufab.grpc.proto.Person::getId,
+            fr.jufab.grpc.proto.Person::getFirstname)
+        .containsExactly(tuple("a", ID, FIRSTNAME), tuple("b", 2, ""),
+            tuple("c", ID, FIRSTNAME));
+  }
+
+  @Test
+  void shouldCancelTheRunningLookupsWhenTheStreamIsCancelled() {
+    AtomicBoolean lookupCancelled = new AtomicBoolean();
+    when(personRepository.getPersonsByIdsWithAddress(any()))
+        .thenReturn(Single.<Map<Integer, Person>>never().onCancel(() -> lookupCancelled.set(true)));
+    personGrpcService.lookupBatching(1, TimeUnit.MINUTES.toMillis(1));
+
+    StreamObserver<QueryPerson> requestObserver =
+        personGrpcService.lookupPersons(personStreamObserver);
+    requestObserver.onNext(QueryPerson.newBuilder().setId(ID).setTag("a").build());
+    requestObserver.onError(Status.CANCELLED.asException());
+    requestObserver.onNext(QueryPerson.newBuilder().setId(2).setTag("b").build());
+
+    assertThat(lookupCancelled).isTrue();
+    verify(personRepository).getPersonsByIdsWithAddress(any());
+    verify(personStreamObserver, never()).onNext(any());
+  }
+
+  @Test
+  void shouldCapTheOutstandingLookupBatches() {
+    List<CompletableFuture<Map<Integer, Person>>> lookups = new ArrayList<>();
+    when(personRepository.getPersonsByIdsWithAddress(any())).thenAnswer(invocation -> {
+      CompletableFuture<Map<Integer, Person>> lookup = new CompletableFuture<>();
+      lookups.add(lookup);
+      return Single.create(lookup);
+    });
+    when(personServerCallObserver.isReady()).thenReturn(true);
+    personGrpcService.lookupBatching(1, TimeUnit.MINUTES.toMillis(1));
+
+    StreamObserver<QueryPerson> requestObserver =
+        personGrpcService.lookupPersons(personServerCallObserver);
+    verify(personServerCallObserver).disableAutoRequest();
+    for (int i = 0; i <= LookupBatcher.MAX_OUTSTANDING_BATCHES; i++) {
+      requestObserver.onNext(QueryPerson.newBuilder().setId(ID).setTag("q" + i).build());
+    }
+
+    assertThat(lookups).hasSize(LookupBatcher.MAX_OUTSTANDING_BATCHES);
+    verify(personServerCallObserver, times(1 + LookupBatcher.MAX_OUTSTANDING_BATCHES))
+        .request(1);
+    lookups.get(0).complete(Map.of(ID, person));
+
+    verify(personServerCallObserver).onNext(any());
+    assertThat(lookups).hasSize(LookupBatcher.MAX_OUTSTANDING_BATCHES + 1);
+    verify(personServerCallObserver, times(2 + LookupBatcher.MAX_OUTSTANDING_BATCHES))
+        .request(1);
+  }
+
+  @Test
+  void shouldSendTheLookupAnswersOnlyWhenTheCallIsReady() {
+    when(personRepository.getPersonsByIdsWithAddress(any()))
+        .thenReturn(Single.just(Map.of(ID, person)));
+    when(personServerCallObserver.isReady()).thenReturn(false);
+    personGrpcService.lookupBatching(1, TimeUnit.MINUTES.toMillis(1));
+
+    StreamObserver<QueryPerson> requestObserver =
+        personGrpcService.lookupPersons(personServerCallObserver);
+    requestObserver.onNext(QueryPerson.newBuilder().setId(ID).setTag("a").build());
+    requestObserver.onCompleted();
+
+    verify(personServerCallObserver, never()).onNext(any());
+    verify(personServerCallObserver, never()).onCompleted();
+    ArgumentCaptor<Runnable> onReady = ArgumentCaptor.forClass(Runnable.class);
+    verify(personServerCallObserver).setOnReadyHandler(onReady.capture());
+    when(personServerCallObserver.isReady()).thenReturn(true);
+    onReady.getValue().run();
+
+    verify(personServerCallObserver).onNext(any());
+    verify(personServerCallObserver).onCompleted();
+  }
+
+  @Test
+  void shouldCancelTheRunningLookupsWhenTheCallIsCancelled() {
+    AtomicBoolean lookupCancelled = new AtomicBoolean();
+    when(personRepository.getPersonsByIdsWithAddress(any()))
+        .thenReturn(Single.<Map<Integer, Person>>never().onCancel(() -> lookupCancelled.set(true)));
+    personGrpcService.lookupBatching(1, TimeUnit.MINUTES.toMillis(1));
+
+    StreamObserver<QueryPerson> requestObserver =
+        personGrpcService.lookupPersons(personServerCallObserver);
+    requestObserver.onNext(QueryPerson.newBuilder().setId(ID).setTag("a").build());
+    ArgumentCaptor<Runnable> onCancel = ArgumentCaptor.forClass(Runnable.class);
+    verify(personServerCallObserver).setOnCancelHandler(onCancel.capture());
+    onCancel.getValue().run();
+
+    assertThat(lookupCancelled).isTrue();
+    verify(personServerCallObserver, never()).onNext(any());
+    verify(personServerCallObserver, never()).onError(any());
+  }
+
+  @Test
+  void shouldReadOnlyTheColumnsOfTheFieldMask() {
+    when(personRepository.getPersonById(ID, PersonProjection.of(Set.of("firstname"), Set.of())))
+        .thenReturn(Single.just(Person.builder().id(ID).firstname(FIRSTNAME)
+            .address(new Address(ID)).build()));
+    QueryPerson queryPerson = QueryPerson.newBuilder()
+        .setId(ID)
+        .setFieldMask(FieldMask.newBuilder().addPaths("id").addPaths("firstname"))
+        .build();
+
+    personGrpcService.personById(queryPerson, personStreamObserver);
+
+    verify(personStreamObserver).onNext(fr.jufab.grpc.proto.Person.newBuilder()
+        .setId(ID)
+        .setFirstname(FIRSTNAME)
+        .build());
+    verify(personStreamObserver).onCompleted();
+  }
+
+  @Test
+  void shouldKeepTheNestedFieldsOfTheFieldMask() {
+    when(personRepository.getPersonsByFirstName(FIRSTNAME,
+        PersonProjection.of(Set.of("lastname"), Set.of("city"))))
+        .thenReturn(Multi.just(Person.builder().id(ID).lastname(LASTNAME)
+            .address(Address.builder().id(ID).city(CITY).build()).build()));
+    QueryPerson queryPerson = QueryPerson.newBuilder()
+        .setFirstname(FIRSTNAME)
+        .setFieldMask(FieldMask.newBuilder().addPaths("lastname").addPaths("address.city"))
+        .build();
+
+    personGrpcService.personsByFirstName(queryPerson, personsStreamObserver);
+
+    verify(personsStreamObserver).onNext(fr.jufab.grpc.proto.Persons.newBuilder()
+        .addPersons(fr.jufab.grpc.proto.Person.newBuilder()
+            .setLastname(LASTNAME)
+            .setAddress(fr.jufab.grpc.proto.Address.newBuilder().setCity(CITY)))
+        .build());
+  }
+
+  @Test
+  void shouldReadTheColumnsOfTheMaskedFields() {
+    assertThat(PersonGrpcService.projection(FieldMask.getDefaultInstance()))
+        .isEqualTo(PersonProjection.ALL);
+    assertThat(PersonGrpcService.projection(FieldMask.newBuilder()
+        .addPaths("age").addPaths("address").build()))
+        .isEqualTo(PersonProjection.of(Set.of("age"), Set.of("street", "zipCode", "city")));
+    assertThat(PersonGrpcService.projection(FieldMask.newBuilder()
+        .addPaths("gender").addPaths("address.id").build()).isWithAddress())
+        .isFalse();
+  }
+
+  @Test
+  void shouldFailAsInvalidArgumentForAnUnknownFieldMaskPath() {
+    QueryPerson queryPerson = QueryPerson.newBuilder()
+        .setFieldMask(FieldMask.newBuilder().addPaths("address.country"))
+        .build();
+
+    personGrpcService.persons(queryPerson, personsStreamObserver);
+
+    assertThat(errorCode(personsStreamObserver)).isEqualTo(Status.Code.INVALID_ARGUMENT);
+    verifyNoInteractions(personRepository);
+  }
+
+  private static Status.Code errorCode(StreamObserver<?> streamObserver) {
+    ArgumentCaptor<Throwable> captor = ArgumentCaptor.forClass(Throwable.class);
+    verify(streamObserver).onError(captor.capture());
+    assertThat(captor.getValue()).isInstanceOf(StatusException.class);
+    return ((StatusException) captor.getValue()).getStatus().getCode();
+  }
+}